@@ -1,56 +1,153 @@
 package pizzashop;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.stage.Stage;
+import org.apache.log4j.Logger;
 import pizzashop.controller.MainGUIController;
 import pizzashop.gui.KitchenGUI;
+import pizzashop.metrics.MetricsRegistry;
 import pizzashop.model.PaymentType;
+import pizzashop.repository.Durability;
 import pizzashop.repository.MenuRepository;
+import pizzashop.repository.PaymentJournal;
 import pizzashop.repository.PaymentRepository;
+import pizzashop.repository.SyncingPaymentStore;
+import pizzashop.service.OrderEngine;
 import pizzashop.service.PizzaService;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class Main extends Application {
+    static final Logger logger = Logger.getLogger(Main.class);
 
+    //payment history, menu and both FXML views load at the same time; the main window shows as soon as
+    //its FXML is parsed and gets its table buttons once the repositories are ready
     @Override
     @java.lang.SuppressWarnings("java:S106")
     public void start(Stage primaryStage) throws Exception{
+        ExecutorService startup = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        MenuRepository repoMenu=new MenuRepository();
-        PaymentRepository payRepo= new PaymentRepository("data/payments.txt");
-        PizzaService service = new PizzaService(repoMenu, payRepo);
-
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/mainFXML.fxml"));
-        //VBox box = loader.load();
-        Parent box = loader.load();
-        MainGUIController ctrl = loader.getController();
-        ctrl.setService(service);
-        primaryStage.setTitle("PizeriaX");
-        primaryStage.setResizable(false);
-        primaryStage.setAlwaysOnTop(false);
-        primaryStage.setOnCloseRequest(event -> {
-            Alert exitAlert = new Alert(Alert.AlertType.CONFIRMATION, "Would you like to exit the Main window?", ButtonType.YES, ButtonType.NO);
-            Optional<ButtonType> result = exitAlert.showAndWait();
-            if (result.get() == ButtonType.YES){
-                //Stage stage = (Stage) this.getScene().getWindow();
-                System.out.println("Incasari cash: "+service.getTotalAmount(PaymentType.CASH));
-                System.out.println("Incasari card: "+service.getTotalAmount(PaymentType.CARD));
-                primaryStage.close();
+        //when payments are forced to disk: -Dpizzashop.durability=sync|group|group:<payments>:<ms>|buffered
+        Durability durability = Durability.parse(System.getProperty("pizzashop.durability", "group"));
+        CompletableFuture<PaymentRepository> payments = stage("payment history", startup,
+                () -> new PaymentRepository(new SyncingPaymentStore(new PaymentJournal("data/payments.txt"), durability), 32, 20));
+        CompletableFuture<MenuRepository> menu = stage("menu", startup, () -> {
+            MenuRepository repoMenu = new MenuRepository();
+            repoMenu.getCatalog();
+            return repoMenu;
+        });
+        CompletableFuture<FXMLLoader> mainView = stage("main window FXML", startup, () -> {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/mainFXML.fxml"));
+            try {
+                loader.load();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            else {
-                event.consume();
+            return loader;
+        });
+        CompletableFuture<FXMLLoader> kitchenView = stage("kitchen window FXML", startup, () -> {
+            try {
+                return KitchenGUI.loadView();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         });
-        primaryStage.setScene(new Scene(box));
-        primaryStage.show();
-        KitchenGUI kitchenGUI = new KitchenGUI();
-        kitchenGUI.showKitchen();
+        CompletableFuture<OrderEngine> engine = payments.thenCombine(menu, (payRepo, repoMenu) -> {
+            PizzaService service = new PizzaService(repoMenu, payRepo);
+            //number of tables, e.g. -Dpizzashop.tables=60
+            service.setTableCount(Integer.getInteger("pizzashop.tables", PizzaService.DEFAULT_TABLE_COUNT));
+            return new OrderEngine(service);
+        });
+        startup.shutdown();
+        //metrics snapshot file, e.g. -Dpizzashop.metrics=data/metrics.txt
+        String metricsFile = System.getProperty("pizzashop.metrics");
+        AutoCloseable metricsExport = metricsFile == null ? null
+                : MetricsRegistry.getDefault().exportPeriodically(new File(metricsFile), 10_000);
+
+        mainView.thenAcceptAsync(loader -> {
+            Parent box = loader.getRoot();
+            primaryStage.setTitle("PizeriaX");
+            primaryStage.setResizable(false);
+            primaryStage.setAlwaysOnTop(false);
+            primaryStage.setOnCloseRequest(event -> {
+                Alert exitAlert = new Alert(Alert.AlertType.CONFIRMATION, "Would you like to exit the Main window?", ButtonType.YES, ButtonType.NO);
+                Optional<ButtonType> result = exitAlert.showAndWait();
+                if (result.get() == ButtonType.YES){
+                    //Stage stage = (Stage) this.getScene().getWindow();
+                    OrderEngine ready = engine.getNow(null);
+                    if (ready != null) {
+                        System.out.println("Incasari cash: "+ready.getService().getTotalAmount(PaymentType.CASH));
+                        System.out.println("Incasari card: "+ready.getService().getTotalAmount(PaymentType.CARD));
+                    }
+                    payments.thenAccept(PaymentRepository::close);
+                    closeQuietly(metricsExport);
+                    primaryStage.close();
+                }
+                else {
+                    event.consume();
+                }
+            });
+            primaryStage.setScene(new Scene(box));
+            primaryStage.show();
+            logger.info("Main window shown " + sinceLaunch() + " ms after launch");
+        }, Platform::runLater).thenCombine(engine, (shown, ready) -> ready).thenAcceptAsync(ready -> {
+            MainGUIController ctrl = mainView.join().getController();
+            ctrl.setEngine(ready);
+            logger.info("Tables usable " + sinceLaunch() + " ms after launch");
+        }, Platform::runLater).exceptionally(Main::startupFailed);
+
+        engine.thenAcceptBothAsync(kitchenView, (ready, loader) -> new KitchenGUI().showKitchen(ready, loader), Platform::runLater)
+                .exceptionally(Main::startupFailed);
+    }
+
+    private static <T> CompletableFuture<T> stage(String name, ExecutorService executor, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T result = work.get();
+            logger.info("Startup stage " + name + " took " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return result;
+        }, executor);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.error(e);
+        }
+    }
+
+    private static long sinceLaunch() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    private static Void startupFailed(Throwable e) {
+        logger.error("Startup failed", e);
+        Platform.runLater(() -> {
+            new Alert(Alert.AlertType.ERROR, "PizeriaX could not start: " + e.getMessage(), ButtonType.OK).showAndWait();
+            Platform.exit();
+        });
+        return null;
     }
 
     public static void main(String[] args) { launch(args);
@@ -1,64 +1,59 @@
 package pizzashop.controller;
 
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.TicketStatus;
+import pizzashop.service.OrderEngine;
 
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class KitchenGUIController {
     @FXML
-    private ListView kitchenOrdersList;
+    private ListView<KitchenTicket> kitchenOrdersList;
     @FXML
     public Button cook;
     @FXML
     public Button ready;
 
-    protected static final ObservableList<String> order = FXCollections.observableArrayList();
-    private Object selectedOrder;
-    private Calendar now = Calendar.getInstance();
-    private String extractedTableNumberString = "";
-    private int extractedTableNumberInteger;
-    //thread for adding data to kitchenOrderList
-    private Thread addOrders = new Thread(() -> {
-        boolean isRunning = true;
-        while (isRunning) {
-            Platform.runLater(() -> kitchenOrdersList.setItems(order));
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException ex) {
-                isRunning = false;
-                Thread.currentThread().interrupt();
-            }
-        }
+    private OrderEngine engine;
+    private KitchenTicket selectedOrder;
+
+    //the list view is only touched when the kitchen queue reports a change
+    public void setEngine(OrderEngine engine) {
+        this.engine = engine;
+        engine.subscribeKitchen(tickets -> {
+            List<KitchenTicket> inKitchen = new ArrayList<>();
+            for (KitchenTicket ticket : tickets)
+                if (ticket.getStatus() == TicketStatus.PLACED || ticket.getStatus() == TicketStatus.COOKING)
+                    inKitchen.add(ticket);
+            Platform.runLater(() -> kitchenOrdersList.getItems().setAll(inKitchen));
+        });
+    }
 
-    });
     @java.lang.SuppressWarnings("java:S106")
     public void initialize() {
-        //starting thread for adding data to kitchenOrderList
-        addOrders.setDaemon(true);
-        addOrders.start();
         //Controller for Cook Button
         cook.setOnAction(event -> {
             selectedOrder = kitchenOrdersList.getSelectionModel().getSelectedItem();
-            kitchenOrdersList.getItems().remove(selectedOrder);
-            kitchenOrdersList.getItems().add(selectedOrder.toString()
-                    .concat(" Cooking started at: ").toUpperCase()
-                    .concat(now.get(Calendar.HOUR) + ":" + now.get(Calendar.MINUTE)));
+            if (selectedOrder != null)
+                engine.cook(selectedOrder.getId());
         });
         //Controller for Ready Button
         ready.setOnAction(event -> {
             selectedOrder = kitchenOrdersList.getSelectionModel().getSelectedItem();
-            kitchenOrdersList.getItems().remove(selectedOrder);
-            extractedTableNumberString = selectedOrder.toString().subSequence(5, 6).toString();
-            extractedTableNumberInteger = Integer.valueOf(extractedTableNumberString);
+            if (selectedOrder == null)
+                return;
+            KitchenTicket readyTicket = engine.ready(selectedOrder.getId());
+            if (readyTicket == null)
+                return;
             System.out.println("--------------------------");
-            System.out.println("Table " + extractedTableNumberInteger + " ready at: " + now.get(Calendar.HOUR) + ":" + now.get(Calendar.MINUTE));
+            System.out.println("Table " + readyTicket.getTable() + " ready at: " + KitchenTicket.time(readyTicket.getTimestamp(TicketStatus.READY)));
             System.out.println("--------------------------");
         });
     }
-}
\ No newline at end of file
+}
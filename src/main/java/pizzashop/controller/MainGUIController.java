@@ -6,85 +6,39 @@ import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.MenuItem;
+import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
-import pizzashop.gui.OrdersGUI;
-import pizzashop.service.PizzaService;
+import pizzashop.gui.OrderWindowPool;
+import pizzashop.service.OrderEngine;
 
 
 public class MainGUIController  {
     @FXML
-    private Button table1;
-    @FXML
-    private Button table2;
-    @FXML
-    private Button table3;
-    @FXML
-    private Button table4;
-    @FXML
-    private Button table5;
-    @FXML
-    private Button table6;
-    @FXML
-    private Button table7;
-    @FXML
-    private Button table8;
+    private VBox tableButtons;
     @FXML
     private MenuItem help;
 
-    OrdersGUI table1Orders = new OrdersGUI();
-    OrdersGUI  table2Orders = new OrdersGUI();
-    OrdersGUI  table3Orders = new OrdersGUI();
-    OrdersGUI  table4Orders = new OrdersGUI();
-    OrdersGUI  table5Orders = new OrdersGUI();
-    OrdersGUI  table6Orders = new OrdersGUI();
-    OrdersGUI  table7Orders = new OrdersGUI();
-    OrdersGUI  table8Orders = new OrdersGUI();
-
-    PizzaService service;
+    OrderEngine engine;
+    OrderWindowPool tableWindows;
 
-    
-
-    public void setService(PizzaService service){
-        this.service=service;
+    public void setEngine(OrderEngine engine){
+        this.engine=engine;
+        this.tableWindows = new OrderWindowPool(engine);
         tableHandlers();
+        tableWindows.prewarm();
     }
 
     private void tableHandlers(){
-        table1.setOnAction(event -> {
-            table1Orders.setTableNumber(1);
-            table1Orders.displayOrdersForm(service);
-        });
-        table2.setOnAction(event -> {
-            table2Orders.setTableNumber(2);
-            table2Orders.displayOrdersForm(service);
-        });
-        table3.setOnAction(event -> {
-            table3Orders.setTableNumber(3);
-            table3Orders.displayOrdersForm(service);
-        });
-        table4.setOnAction(event -> {
-            table4Orders.setTableNumber(4);
-            table4Orders.displayOrdersForm(service);
-        });
-        table5.setOnAction(event -> {
-            table5Orders.setTableNumber(5);
-            table5Orders.displayOrdersForm(service);
-        });
-        table6.setOnAction(event -> {
-            table6Orders.setTableNumber(6);
-            table6Orders.displayOrdersForm(service);
-        });
-        table7.setOnAction(event -> {
-            table7Orders.setTableNumber(7);
-            table7Orders.displayOrdersForm(service);
-        });
-        table8.setOnAction(event -> {
-            table8Orders.setTableNumber(8);
-            table8Orders.displayOrdersForm(service);
-        });
-
+        tableButtons.getChildren().clear();
+        for (int table = 1; table <= tableWindows.getTableCount(); table++) {
+            int tableNumber = table;
+            Button button = new Button("Table" + tableNumber);
+            button.setMinWidth(80);
+            button.setOnAction(event -> tableWindows.show(tableNumber));
+            tableButtons.getChildren().add(button);
+        }
     }
 
 
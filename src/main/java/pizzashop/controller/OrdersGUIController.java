@@ -1,22 +1,23 @@
 package pizzashop.controller;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import org.apache.log4j.Logger;
-import pizzashop.model.MenuDataModel;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.TableOrder;
+import pizzashop.model.TicketStatus;
+import pizzashop.service.OrderEngine;
 import pizzashop.service.PaymentAlert;
-import pizzashop.service.PizzaService;
 
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class OrdersGUIController {
     static final Logger logger = Logger.getLogger(OrdersGUIController.class);
@@ -24,13 +25,13 @@ public class OrdersGUIController {
     @FXML
     private ComboBox<Integer> orderQuantity;
     @FXML
-    private TableView orderTable;
+    private TableView<Integer> orderTable;
     @FXML
-    private TableColumn tableQuantity;
+    private TableColumn<Integer, Integer> tableQuantity;
     @FXML
-    protected TableColumn tableMenuItem;
+    protected TableColumn<Integer, String> tableMenuItem;
     @FXML
-    private TableColumn tablePrice;
+    private TableColumn<Integer, Double> tablePrice;
     @FXML
     private Label pizzaTypeLabel;
     @FXML
@@ -46,9 +47,6 @@ public class OrdersGUIController {
     @FXML
     private Button newOrder;
 
-    private List<String> orderList = FXCollections.observableArrayList();
-    private List<Double> orderPaymentList = FXCollections.observableArrayList();
-
     public static double getTotalAmount() {
         return totalAmount;
     }
@@ -57,69 +55,99 @@ public class OrdersGUIController {
         OrdersGUIController.totalAmount = totalAmount;
     }
 
-    private PizzaService service;
+    private OrderEngine engine;
     private int tableNumber;
 
-    private TableView<MenuDataModel> table = new TableView<>();
+    private TableView<Integer> table = new TableView<>();
+    //rows are menu item ids, the cells read names and prices from the shared catalog and quantities from the order
+    private ObservableList<Integer> menuRows = FXCollections.observableArrayList();
+    private TableOrder order;
 
-    private Calendar now = Calendar.getInstance();
     private static double totalAmount;
 
-    public void setService(PizzaService service, int tableNumber) {
-        this.service = service;
+    //also called again when a pooled window is reused for the table's next visit
+    public void setEngine(OrderEngine engine, int tableNumber) {
+        this.engine = engine;
         this.tableNumber = tableNumber;
+        orderStatus.setText("");
+        orderTable.getSelectionModel().clearSelection();
         initData();
 
     }
 
+    private void showOrder(TableOrder tableOrder) {
+        order = tableOrder;
+        List<Integer> ids = new ArrayList<>(order.getCatalog().size());
+        for (int i = 0; i < order.getCatalog().size(); i++)
+            ids.add(i);
+        menuRows.setAll(ids);
+        orderTable.refresh();
+    }
+
     private void initData() {
-        ObservableList<MenuDataModel> menuData = FXCollections.observableArrayList(service.getMenuData());
-        menuData.setAll(service.getMenuData());
-        orderTable.setItems(menuData);
+        showOrder(engine.openTable(tableNumber));
+        orderTable.setItems(menuRows);
 
         //Controller for Place Order Button
         placeOrder.setOnAction(event -> {
-            orderList = menuData.stream()
-                    .filter(x -> x.getQuantity() > 0)
-                    .map(menuDataModel -> menuDataModel.getQuantity() + " " + menuDataModel.getMenuItem())
-                    .collect(Collectors.toList());
-            KitchenGUIController.order.add("Table" + tableNumber + " " + orderList.toString());
-            orderStatus.setText("Order placed at: " + now.get(Calendar.HOUR) + ":" + now.get(Calendar.MINUTE));
+            KitchenTicket placed = engine.placeOrder(tableNumber);
+            if (placed != null) {
+                orderStatus.setText("Order placed at: " + KitchenTicket.time(placed.getTimestamp(TicketStatus.PLACED)));
+            } else {
+                orderStatus.setText("The kitchen is full, try again later.");
+            }
         });
 
         //Controller for Order Served Button
-        orderServed.setOnAction(event -> orderStatus.setText("Served at: " + now.get(Calendar.HOUR) + ":" + now.get(Calendar.MINUTE)));
+        orderServed.setOnAction(event -> {
+            if (engine.getTicket(tableNumber) == null) {
+                orderStatus.setText("No order waiting to be served.");
+                return;
+            }
+            KitchenTicket served = engine.serve(tableNumber);
+            if (served == null) {
+                orderStatus.setText("Order is not ready yet.");
+                return;
+            }
+            orderStatus.setText("Served at: " + KitchenTicket.time(served.getTimestamp(TicketStatus.SERVED)));
+        });
 
         //Controller for Pay Order Button
         payOrder.setOnAction(event -> {
-            orderPaymentList = menuData.stream()
-                    .filter(x -> x.getQuantity() > 0)
-                    .map(menuDataModel -> menuDataModel.getQuantity() * menuDataModel.getPrice())
-                    .collect(Collectors.toList());
-            setTotalAmount(orderPaymentList.stream().mapToDouble(Double::doubleValue).sum());
+            setTotalAmount(order.getTotalAmount());
             orderStatus.setText("Total amount: " + getTotalAmount());
             logger.info("--------------------------");
             logger.info("Table: " + tableNumber);
             logger.info("Total: " + getTotalAmount());
             logger.info("--------------------------");
-            PaymentAlert pay = new PaymentAlert(service);
+            PaymentAlert pay = new PaymentAlert(engine);
             pay.showPaymentAlert(tableNumber, getTotalAmount());
+            showOrder(engine.getOrder(tableNumber));
         });
     }
 
+    //picks up a changed menu file, keeping the quantities already chosen for items that are still on the menu
+    public void refreshMenu() {
+        if (engine == null)
+            return;
+        TableOrder current = engine.refreshMenu(tableNumber);
+        if (current != order)
+            showOrder(current);
+    }
+
     public void initialize() {
 
-        //populate table view with menuData from OrderGUI
+        //populate table view with the menu catalog and the table's quantities
         table.setEditable(true);
-        tableMenuItem.setCellValueFactory(
-                new PropertyValueFactory<MenuDataModel, String>("menuItem"));
-        tablePrice.setCellValueFactory(
-                new PropertyValueFactory<MenuDataModel, Double>("price"));
-        tableQuantity.setCellValueFactory(
-                new PropertyValueFactory<MenuDataModel, Integer>("quantity"));
-
-        //bind pizzaTypeLabel and quantity combo box with the selection on the table view
-        orderTable.getSelectionModel().selectedItemProperty().addListener((ChangeListener<MenuDataModel>) (observable, oldValue, newValue) -> pizzaTypeLabel.textProperty().bind(newValue.menuItemProperty()));
+        tableMenuItem.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(order.getCatalog().getName(cell.getValue())));
+        tablePrice.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(order.getCatalog().getPrice(cell.getValue())));
+        tableQuantity.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(order.getQuantity(cell.getValue())));
+
+        //show the selected menu item next to the quantity combo box
+        orderTable.getSelectionModel().selectedItemProperty().addListener((ChangeListener<Integer>) (observable, oldValue, newValue) -> {
+            if (newValue != null)
+                pizzaTypeLabel.setText(order.getCatalog().getName(newValue));
+        });
 
         //Populate Combo box for Quantity
         ObservableList<Integer> quantityValues = FXCollections.observableArrayList(0, 1, 2, 3, 4, 5);
@@ -127,10 +155,13 @@ public class OrdersGUIController {
         orderQuantity.setPromptText("Quantity");
 
         //Controller for Add to order Button
-        addToOrder.setOnAction(event -> orderTable.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<MenuDataModel>() {
+        addToOrder.setOnAction(event -> orderTable.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<Integer>() {
             @Override
-            public void changed(ObservableValue<? extends MenuDataModel> observable, MenuDataModel oldValue, MenuDataModel newValue) {
-                oldValue.setQuantity(orderQuantity.getValue());
+            public void changed(ObservableValue<? extends Integer> observable, Integer oldValue, Integer newValue) {
+                if (oldValue != null && orderQuantity.getValue() != null) {
+                    engine.setQuantity(tableNumber, oldValue, orderQuantity.getValue());
+                    orderTable.refresh();
+                }
                 orderTable.getSelectionModel().selectedItemProperty().removeListener(this);
             }
         }));
@@ -7,6 +7,8 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.apache.log4j.Logger;
+import pizzashop.controller.KitchenGUIController;
+import pizzashop.service.OrderEngine;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -15,14 +17,26 @@ import java.util.Optional;
 public class KitchenGUI {
     static final Logger logger = Logger.getLogger(KitchenGUI.class);
 
-    public void showKitchen() {
-        VBox vBoxKitchen = null;
+    //parses the kitchen FXML, may run off the FX thread
+    public static FXMLLoader loadView() throws IOException {
+        FXMLLoader loader = new FXMLLoader(KitchenGUI.class.getResource("/fxml/kitchenGUIFXML.fxml"));
+        loader.load();
+        return loader;
+    }
 
+    public void showKitchen(OrderEngine engine) {
         try {
-            vBoxKitchen = FXMLLoader.load(getClass().getResource("/fxml/kitchenGUIFXML.fxml"));
+            showKitchen(engine, loadView());
         } catch (IOException e) {
             logger.error("Could not load fxml file.", e);
         }
+    }
+
+    //shows a view already returned by loadView
+    public void showKitchen(OrderEngine engine, FXMLLoader loaded) {
+        VBox vBoxKitchen = loaded.getRoot();
+        KitchenGUIController kitchenCtrl = loaded.getController();
+        kitchenCtrl.setEngine(engine);
 
         Stage stage = new Stage();
         stage.setTitle("Kitchen");
@@ -46,4 +60,3 @@ public class KitchenGUI {
         stage.toBack();
     }
 }
-
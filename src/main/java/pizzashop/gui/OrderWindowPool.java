@@ -0,0 +1,70 @@
+package pizzashop.gui;
+
+import org.apache.log4j.Logger;
+import pizzashop.service.OrderEngine;
+import pizzashop.service.TableRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//one order window per table, built once and kept after the table closes so reopening it is instant;
+//only the table's order state in the engine is dropped on close
+public class OrderWindowPool {
+    private final OrderEngine engine;
+    private final byte[] template;
+    private final TableRegistry<OrdersGUI> windows;
+    static final Logger logger = Logger.getLogger(OrderWindowPool.class);
+
+    public OrderWindowPool(OrderEngine engine) {
+        this.engine = engine;
+        this.template = readTemplate();
+        this.windows = new TableRegistry<>(engine.getTableCount(), this::createWindow);
+    }
+
+    private static byte[] readTemplate() {
+        try (InputStream in = OrdersGUI.class.getResourceAsStream(OrdersGUI.FXML)) {
+            if (in == null)
+                return null;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                bytes.write(buffer, 0, read);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            logger.error("Could not read " + OrdersGUI.FXML, e);
+            return null;
+        }
+    }
+
+    private OrdersGUI createWindow(int table) {
+        OrdersGUI orders = new OrdersGUI();
+        orders.setTableNumber(table);
+        orders.setTemplate(template);
+        orders.setOnClosed(() -> engine.closeTable(table));
+        return orders;
+    }
+
+    public int getTableCount() {
+        return windows.getTableCount();
+    }
+
+    //must run on the FX thread
+    public void show(int table) {
+        windows.open(table).displayOrdersForm(engine);
+    }
+
+    //loads every table's window on a background thread, tables clicked meanwhile are simply loaded first
+    public Thread prewarm() {
+        Thread worker = new Thread(() -> {
+            long start = System.nanoTime();
+            for (int table = 1; table <= windows.getTableCount(); table++)
+                windows.open(table).prepare();
+            logger.info("Prepared " + windows.getTableCount() + " order windows in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }, "order-window-prewarm");
+        worker.setDaemon(true);
+        worker.start();
+        return worker;
+    }
+}
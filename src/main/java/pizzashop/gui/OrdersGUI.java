@@ -7,14 +7,21 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.apache.log4j.Logger;
 import pizzashop.controller.OrdersGUIController;
-import pizzashop.service.PizzaService;
+import pizzashop.service.OrderEngine;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 
 public class OrdersGUI {
+    static final String FXML = "/fxml/OrdersGUIFXML.fxml";
 
     protected int tableNumber;
+    private byte[] template;
+    private VBox vBoxOrders;
+    private OrdersGUIController ordersCtrl;
+    private Stage stage;
+    private Runnable onClosed;
 
     public int getTableNumber() {
         return tableNumber;
@@ -24,31 +31,63 @@ public class OrdersGUI {
         this.tableNumber = tableNumber;
     }
 
-    private PizzaService service;
-    static final Logger logger = Logger.getLogger(OrdersGUI.class);
-
+    //the FXML document already read into memory, shared by every table's window
+    public void setTemplate(byte[] template) {
+        this.template = template;
+    }
 
-    public void displayOrdersForm(PizzaService service) {
-        VBox vBoxOrders = null;
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/OrdersGUIFXML.fxml"));
+    //called every time the table's window has been closed
+    public void setOnClosed(Runnable onClosed) {
+        this.onClosed = onClosed;
+    }
 
-            //vBoxOrders = FXMLLoader.load(getClass().getResource("/fxml/OrdersGUIFXML.fxml"));
-            vBoxOrders = loader.load();
-            OrdersGUIController ordersCtrl = loader.getController();
-            ordersCtrl.setService(service, tableNumber);
+    static final Logger logger = Logger.getLogger(OrdersGUI.class);
 
+    //builds the window's nodes and controller once, may run off the FX thread
+    public synchronized void prepare() {
+        if (vBoxOrders != null)
+            return;
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource(FXML));
+            vBoxOrders = template == null ? loader.load() : loader.load(new ByteArrayInputStream(template));
+            ordersCtrl = loader.getController();
         } catch (IOException e) {
             logger.error(e);
         }
+    }
+
+    public void displayOrdersForm(OrderEngine engine) {
+        if (stage != null && stage.isShowing()) {
+            stage.toFront();
+            return;
+        }
+        prepare();
+        if (ordersCtrl == null)
+            return;
+        ordersCtrl.setEngine(engine, tableNumber);
+        if (stage == null)
+            stage = createStage();
+        stage.show();
+    }
 
-        Stage stage = new Stage();
-        stage.setTitle("Table" + getTableNumber() + " order form");
-        stage.setResizable(false);
+    //the stage is only hidden when the table closes, the next visit shows it again
+    private Stage createStage() {
+        Stage orders = new Stage();
+        //an open table window switches to a new menu version the next time it gets focus
+        orders.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (focused)
+                ordersCtrl.refreshMenu();
+        });
+        orders.setTitle("Table" + getTableNumber() + " order form");
+        orders.setResizable(false);
         // disable X on the window
         // consume event
-        stage.setOnCloseRequest(Event::consume);
-        stage.setScene(new Scene(vBoxOrders));
-        stage.show();
+        orders.setOnCloseRequest(Event::consume);
+        orders.setOnHidden(event -> {
+            if (onClosed != null)
+                onClosed.run();
+        });
+        orders.setScene(new Scene(vBoxOrders));
+        return orders;
     }
 }
@@ -0,0 +1,20 @@
+package pizzashop.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//monotonic count, cheap to bump from many threads at once
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
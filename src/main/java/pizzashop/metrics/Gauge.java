@@ -0,0 +1,7 @@
+package pizzashop.metrics;
+
+//a value read only when a snapshot is taken, e.g. a queue depth
+@FunctionalInterface
+public interface Gauge {
+    long get();
+}
@@ -0,0 +1,122 @@
+package pizzashop.metrics;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+//named counters, gauges and latency histograms; look a metric up once and keep the instance,
+//only the lookup touches the map
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    static final Logger logger = Logger.getLogger(MetricsRegistry.class);
+
+    //the registry the service, repositories and kitchen report to
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    //a later gauge with the same name replaces the earlier one
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    //reads the owner through a weak reference, so registering on the default registry does not keep
+    //the owner alive; the reading must not capture the owner itself. The gauge is dropped once the
+    //owner has been collected
+    public <T> Gauge gauge(String name, T owner, ToLongFunction<? super T> reading) {
+        Gauge gauge = new OwnedGauge<>(owner, reading);
+        gauges.put(name, gauge);
+        return gauge;
+    }
+
+    //only removes the gauge if it is still the one registered under the name, closing an old owner
+    //leaves the gauge of a newer one alone
+    public void removeGauge(String name, Gauge gauge) {
+        gauges.remove(name, gauge);
+    }
+
+    //one line per metric, sorted by name; histograms are reported in milliseconds
+    public void writeSnapshot(PrintWriter out) {
+        out.println("# pizzashop metrics " + System.currentTimeMillis());
+        counters.forEach((name, counter) -> out.println(name + " counter " + counter.get()));
+        gauges.values().removeIf(gauge -> gauge instanceof OwnedGauge && ((OwnedGauge<?>) gauge).isOrphaned());
+        gauges.forEach((name, gauge) -> out.println(name + " gauge " + gauge.get()));
+        histograms.forEach((name, histogram) -> out.println(name + " histogram " + histogram.summary(TimeUnit.MILLISECONDS)));
+    }
+
+    //replaces the file in one step, so readers never see half a snapshot
+    public void writeSnapshot(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile("metrics", ".tmp", parent);
+        try (PrintWriter out = new PrintWriter(temp, "UTF-8")) {
+            writeSnapshot(out);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //rewrites the snapshot file every periodMillis until the returned handle is closed, which writes it one last time
+    public AutoCloseable exportPeriodically(File file, long periodMillis) {
+        if (periodMillis < 1)
+            throw new IllegalArgumentException("Export period has to be at least 1 ms.");
+        ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable export = () -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                logger.error("Could not write metrics to " + file, e);
+            }
+        };
+        exporter.scheduleAtFixedRate(export, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> {
+            exporter.shutdownNow();
+            export.run();
+        };
+    }
+
+    private static final class OwnedGauge<T> implements Gauge {
+        private final WeakReference<T> owner;
+        private final ToLongFunction<? super T> reading;
+
+        OwnedGauge(T owner, ToLongFunction<? super T> reading) {
+            this.owner = new WeakReference<>(owner);
+            this.reading = reading;
+        }
+
+        @Override
+        public long get() {
+            T o = owner.get();
+            return o == null ? 0 : reading.applyAsLong(o);
+        }
+
+        boolean isOrphaned() {
+            return owner.get() == null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pizzashop.model;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+//one placed order as the kitchen sees it; immutable, every status change makes a new ticket
+public final class KitchenTicket {
+    private final long id;
+    private final int table;
+    private final List<OrderLine> lines;
+    private final TicketStatus status;
+    //epoch millis at which each status was reached, indexed by status ordinal, 0 when not reached yet
+    private final long[] timestamps;
+    //System.nanoTime() at each status, only meaningful as differences within one JVM
+    private final long[] nanos;
+
+    public KitchenTicket(long id, int table, List<OrderLine> lines, long placedAt) {
+        this(id, table, lines, placedAt, System.nanoTime());
+    }
+
+    public KitchenTicket(long id, int table, List<OrderLine> lines, long placedAt, long placedNanos) {
+        this.id = id;
+        this.table = table;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        this.status = TicketStatus.PLACED;
+        this.timestamps = new long[TicketStatus.values().length];
+        this.timestamps[TicketStatus.PLACED.ordinal()] = placedAt;
+        this.nanos = new long[TicketStatus.values().length];
+        this.nanos[TicketStatus.PLACED.ordinal()] = placedNanos;
+    }
+
+    private KitchenTicket(KitchenTicket from, TicketStatus status, long at, long atNanos) {
+        this.id = from.id;
+        this.table = from.table;
+        this.lines = from.lines;
+        this.status = status;
+        this.timestamps = from.timestamps.clone();
+        this.timestamps[status.ordinal()] = at;
+        this.nanos = from.nanos.clone();
+        this.nanos[status.ordinal()] = atNanos;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getTable() {
+        return table;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    public TicketStatus getStatus() {
+        return status;
+    }
+
+    public long getTimestamp(TicketStatus reached) {
+        return timestamps[reached.ordinal()];
+    }
+
+    public long getNanos(TicketStatus reached) {
+        return nanos[reached.ordinal()];
+    }
+
+    //monotonic time between reaching the two statuses, both have to be reached already
+    public long getElapsedNanos(TicketStatus from, TicketStatus to) {
+        if (from.ordinal() > status.ordinal() || to.ordinal() > status.ordinal())
+            throw new IllegalStateException("Ticket " + id + " has not reached " + (to.ordinal() > status.ordinal() ? to : from) + " yet.");
+        return nanos[to.ordinal()] - nanos[from.ordinal()];
+    }
+
+    public KitchenTicket advance(TicketStatus next, long at) {
+        return advance(next, at, System.nanoTime());
+    }
+
+    //tickets only move one status forward at a time
+    public KitchenTicket advance(TicketStatus next, long at, long atNanos) {
+        if (next.ordinal() != status.ordinal() + 1)
+            throw new IllegalStateException("Ticket " + id + " can not go from " + status + " to " + next + ".");
+        return new KitchenTicket(this, next, at, atNanos);
+    }
+
+    public static String time(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.HOUR) + ":" + calendar.get(Calendar.MINUTE);
+    }
+
+    @Override
+    public String toString() {
+        String order = "Table" + table + " " + lines;
+        if (status == TicketStatus.PLACED)
+            return order;
+        return order.concat(" " + label(status) + " at: ").toUpperCase().concat(time(getTimestamp(status)));
+    }
+
+    private static String label(TicketStatus status) {
+        switch (status) {
+            case COOKING:
+                return "Cooking started";
+            case READY:
+                return "Ready";
+            default:
+                return "Served";
+        }
+    }
+}
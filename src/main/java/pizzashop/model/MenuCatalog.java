@@ -0,0 +1,32 @@
+package pizzashop.model;
+
+//immutable snapshot of the menu file, shared by every table
+public final class MenuCatalog {
+    private final long version;
+    private final String[] names;
+    private final double[] prices;
+
+    public MenuCatalog(long version, String[] names, double[] prices) {
+        if (names.length != prices.length)
+            throw new IllegalArgumentException("Every menu item needs exactly one price.");
+        this.version = version;
+        this.names = names.clone();
+        this.prices = prices.clone();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int item) {
+        return names[item];
+    }
+
+    public double getPrice(int item) {
+        return prices[item];
+    }
+}
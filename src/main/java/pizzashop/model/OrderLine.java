@@ -0,0 +1,37 @@
+package pizzashop.model;
+
+public final class OrderLine {
+    private final String menuItem;
+    private final int quantity;
+
+    public OrderLine(String menuItem, int quantity) {
+        this.menuItem = menuItem;
+        this.quantity = quantity;
+    }
+
+    public String getMenuItem() {
+        return menuItem;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrderLine)) return false;
+        OrderLine other = (OrderLine) o;
+        return quantity == other.quantity && menuItem.equals(other.menuItem);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * menuItem.hashCode() + quantity;
+    }
+
+    @Override
+    public String toString() {
+        return quantity + " " + menuItem;
+    }
+}
@@ -1,17 +1,24 @@
 package pizzashop.model;
 
-
+import java.util.Objects;
 
 public class Payment {
 
     private int tableNumber;
     private PaymentType type;
     private double amount;
+    //epoch millis, 0 for payments recorded before timestamps were kept
+    private long timestamp;
 
     public Payment(int tableNumber, PaymentType type, double amount) {
+        this(tableNumber, type, amount, 0);
+    }
+
+    public Payment(int tableNumber, PaymentType type, double amount, long timestamp) {
         this.tableNumber = tableNumber;
         this.type = type;
         this.amount = amount;
+        this.timestamp = timestamp;
     }
 
     public int getTableNumber() {
@@ -38,8 +45,35 @@ public class Payment {
         this.amount = amount;
     }
 
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Payment)) return false;
+        Payment other = (Payment) o;
+        return getTableNumber() == other.getTableNumber()
+                && getType() == other.getType()
+                && Double.compare(getAmount(), other.getAmount()) == 0
+                && getTimestamp() == other.getTimestamp();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tableNumber, type, amount, timestamp);
+    }
+
     @Override
     public String toString() {
-        return tableNumber + ","+type +"," + amount;
+        //untimed payments keep the original three-field record
+        if (timestamp == 0)
+            return tableNumber + ","+type +"," + amount;
+        return tableNumber + ","+type +"," + amount + "," + timestamp;
     }
 }
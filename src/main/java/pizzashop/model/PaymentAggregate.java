@@ -0,0 +1,37 @@
+package pizzashop.model;
+
+//count and sum of the payments made in [from, to), both in epoch millis
+public class PaymentAggregate {
+    private final long from;
+    private final long to;
+    private final int count;
+    private final double total;
+
+    public PaymentAggregate(long from, long to, int count, double total) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.total = total;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return from + "-" + to + ": " + count + " payments, " + total;
+    }
+}
@@ -0,0 +1,48 @@
+package pizzashop.model;
+
+//count, sum, smallest and largest payment of one table
+public class TableAggregate {
+    private final int table;
+    private final int count;
+    private final double total;
+    private final double min;
+    private final double max;
+
+    public TableAggregate(int table, int count, double total, double min, double max) {
+        this.table = table;
+        this.count = count;
+        this.total = total;
+        this.min = min;
+        this.max = max;
+    }
+
+    public int getTable() {
+        return table;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    //0 when the table has no payments
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public String toString() {
+        return "Table" + table + ": " + count + " payments, " + total;
+    }
+}
@@ -0,0 +1,70 @@
+package pizzashop.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//per-table quantities on top of the shared menu catalog, indexed by menu item id
+public class TableOrder {
+    private final MenuCatalog catalog;
+    private final int[] quantities;
+
+    public TableOrder(MenuCatalog catalog) {
+        this.catalog = catalog;
+        this.quantities = new int[catalog.size()];
+    }
+
+    public MenuCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int getQuantity(int item) {
+        return quantities[item];
+    }
+
+    public void setQuantity(int item, int quantity) {
+        if (quantity < 0)
+            throw new IllegalArgumentException("Quantity can not be negative.");
+        quantities[item] = quantity;
+    }
+
+    public void clear() {
+        Arrays.fill(quantities, 0);
+    }
+
+    public double getTotalAmount() {
+        double total = 0;
+        for (int i = 0; i < quantities.length; i++)
+            if (quantities[i] > 0)
+                total += quantities[i] * catalog.getPrice(i);
+        return total;
+    }
+
+    //every item with a quantity, in menu order
+    public List<OrderLine> getOrderLines() {
+        List<OrderLine> lines = new ArrayList<>();
+        for (int i = 0; i < quantities.length; i++)
+            if (quantities[i] > 0)
+                lines.add(new OrderLine(catalog.getName(i), quantities[i]));
+        return lines;
+    }
+
+    //moves the chosen quantities onto another menu version, items that are gone are dropped
+    public TableOrder withCatalog(MenuCatalog newCatalog) {
+        TableOrder moved = new TableOrder(newCatalog);
+        Map<String, Integer> chosen = new HashMap<>();
+        for (int i = 0; i < quantities.length; i++)
+            if (quantities[i] > 0)
+                chosen.put(catalog.getName(i), quantities[i]);
+        if (chosen.isEmpty())
+            return moved;
+        for (int i = 0; i < newCatalog.size(); i++) {
+            Integer quantity = chosen.get(newCatalog.getName(i));
+            if (quantity != null)
+                moved.quantities[i] = quantity;
+        }
+        return moved;
+    }
+}
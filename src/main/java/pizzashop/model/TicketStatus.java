@@ -0,0 +1,6 @@
+package pizzashop.model;
+
+//the stages a kitchen ticket goes through, in order
+public enum TicketStatus {
+    PLACED, COOKING, READY, SERVED
+}
@@ -0,0 +1,80 @@
+package pizzashop.repository;
+
+//when SyncingPaymentStore forces appended payments onto the disk, and so what a power cut can lose:
+//SYNC_EACH_WRITE loses nothing that was acknowledged, GROUP_SYNC at most syncEvery payments or syncMillis of them,
+//OS_BUFFERED whatever the operating system had not written back yet.
+//When a sync fails, the payments of the write that asked for it are truncated away and the write fails;
+//payments acknowledged earlier without a sync (group sync) stay. Only if truncating fails as well can a
+//payment reported as failed show up again on the next load
+public final class Durability {
+    public enum Mode {SYNC_EACH_WRITE, GROUP_SYNC, OS_BUFFERED}
+
+    public static final int DEFAULT_SYNC_EVERY = 64;
+    public static final long DEFAULT_SYNC_MILLIS = 100;
+
+    private final Mode mode;
+    private final int syncEvery;
+    private final long syncMillis;
+
+    private Durability(Mode mode, int syncEvery, long syncMillis) {
+        this.mode = mode;
+        this.syncEvery = syncEvery;
+        this.syncMillis = syncMillis;
+    }
+
+    //every store write is synced before it is acknowledged; with group commit one write is one batch
+    public static Durability syncEachWrite() {
+        return new Durability(Mode.SYNC_EACH_WRITE, 1, 0);
+    }
+
+    //synced once syncEvery payments are written or the oldest unsynced one is syncMillis old, whichever comes first
+    public static Durability groupSync(int syncEvery, long syncMillis) {
+        if (syncEvery < 1)
+            throw new IllegalArgumentException("Group sync has to cover at least 1 payment.");
+        if (syncMillis < 1)
+            throw new IllegalArgumentException("Group sync interval has to be at least 1 ms.");
+        return new Durability(Mode.GROUP_SYNC, syncEvery, syncMillis);
+    }
+
+    //never synced, not even on close: writing back is left to the operating system (snapshots still sync what they cover)
+    public static Durability osBuffered() {
+        return new Durability(Mode.OS_BUFFERED, Integer.MAX_VALUE, 0);
+    }
+
+    //"sync", "buffered", "group" or "group:<payments>:<millis>"
+    public static Durability parse(String text) {
+        String[] parts = text.trim().toLowerCase().split(":");
+        switch (parts[0]) {
+            case "sync":
+                return syncEachWrite();
+            case "buffered":
+                return osBuffered();
+            case "group":
+                if (parts.length == 1)
+                    return groupSync(DEFAULT_SYNC_EVERY, DEFAULT_SYNC_MILLIS);
+                if (parts.length == 3)
+                    return groupSync(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unknown durability mode " + text);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getSyncEvery() {
+        return syncEvery;
+    }
+
+    public long getSyncMillis() {
+        return syncMillis;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.GROUP_SYNC ? mode + " every " + syncEvery + " payments or " + syncMillis + " ms" : mode.toString();
+    }
+}
@@ -0,0 +1,204 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Logger;
+import pizzashop.metrics.Counter;
+import pizzashop.metrics.Gauge;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.Payment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//background stage that collects pending payments and flushes each batch with one write
+public class GroupCommitWriter implements AutoCloseable {
+    private static final PendingRecord SHUTDOWN = new PendingRecord(null, null);
+
+    private final PaymentStore store;
+    private final int batchSize;
+    private final long lingerMillis;
+    //gets each batch once it is stored, before the batch's futures complete
+    private final Consumer<List<Payment>> written;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+    private final LatencyHistogram flushLatency = MetricsRegistry.getDefault().histogram("repository.payment.batch_flush");
+    private final Counter batches = MetricsRegistry.getDefault().counter("repository.payment.batches");
+    private final Counter batchedPayments = MetricsRegistry.getDefault().counter("repository.payment.batched");
+    private final Gauge pendingGauge;
+    static final Logger logger = Logger.getLogger(GroupCommitWriter.class);
+
+    public GroupCommitWriter(PaymentStore store, int batchSize, long lingerMillis) {
+        this(store, batchSize, lingerMillis, payments -> { });
+    }
+
+    //written is called on the writer thread, one stored batch at a time in submission order; a batch that
+    //could not be stored is not passed on
+    public GroupCommitWriter(PaymentStore store, int batchSize, long lingerMillis, Consumer<List<Payment>> written) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size has to be at least 1.");
+        if (lingerMillis < 0)
+            throw new IllegalArgumentException("Linger time can not be negative.");
+        this.store = store;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.written = written;
+        this.worker = new Thread(this::run, "payment-group-commit");
+        this.worker.setDaemon(true);
+        this.pendingGauge = MetricsRegistry.getDefault().gauge("repository.payment.pending", queue, BlockingQueue::size);
+        this.worker.start();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public CompletableFuture<Void> submit(Payment payment) {
+        PendingRecord pending = new PendingRecord(payment, null);
+        enqueue(pending);
+        return pending.done;
+    }
+
+    //completes with the store's position once everything submitted before it is written, and nothing after it
+    public CompletableFuture<Long> mark() {
+        PendingRecord pending = new PendingRecord(null, new CompletableFuture<>());
+        enqueue(pending);
+        return pending.position;
+    }
+
+    private void enqueue(PendingRecord pending) {
+        if (closed) {
+            pending.fail(new IllegalStateException("Payment writer is closed."));
+            return;
+        }
+        queue.add(pending);
+    }
+
+    private void run() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                PendingRecord first = queue.take();
+                if (first == SHUTDOWN)
+                    break;
+                batch.add(first);
+                running = fillBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+                Thread.currentThread().interrupt();
+            }
+            flush(batch);
+        }
+        //whatever is still queued at shutdown goes out in one last batch
+        queue.drainTo(batch);
+        batch.remove(SHUTDOWN);
+        flush(batch);
+    }
+
+    private boolean fillBatch(List<PendingRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < batchSize) {
+            PendingRecord next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return true;
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null)
+                    return true;
+            }
+            if (next == SHUTDOWN)
+                return false;
+            batch.add(next);
+        }
+        return true;
+    }
+
+    //a mark splits the batch: the payments before it are written, then it gets the store's position
+    private void flush(List<PendingRecord> batch) {
+        int from = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRecord mark = batch.get(i);
+            if (mark.position == null)
+                continue;
+            if (write(batch.subList(from, i)))
+                mark.position.complete(store.position());
+            else
+                mark.fail(new IOException("Payments before the mark could not be written."));
+            from = i + 1;
+        }
+        write(batch.subList(from, batch.size()));
+        batch.clear();
+    }
+
+    private boolean write(List<PendingRecord> records) {
+        if (records.isEmpty())
+            return true;
+        List<Payment> payments = new ArrayList<>(records.size());
+        for (PendingRecord pending : records)
+            payments.add(pending.payment);
+        long start = System.nanoTime();
+        try {
+            store.appendAll(payments);
+        } catch (IOException e) {
+            logger.error(e);
+            for (PendingRecord pending : records)
+                pending.fail(e);
+            return false;
+        }
+        flushLatency.recordSince(start);
+        batches.increment();
+        batchedPayments.add(records.size());
+        written.accept(payments);
+        for (PendingRecord pending : records)
+            pending.done.complete(null);
+        return true;
+    }
+
+    //flushes everything submitted so far and stops the background thread
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingRecord late;
+        while ((late = queue.poll()) != null)
+            late.fail(new IllegalStateException("Payment writer is closed."));
+        MetricsRegistry.getDefault().removeGauge("repository.payment.pending", pendingGauge);
+    }
+
+    private static final class PendingRecord {
+        private final Payment payment;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        //only set for marks
+        private final CompletableFuture<Long> position;
+
+        private PendingRecord(Payment payment, CompletableFuture<Long> position) {
+            this.payment = payment;
+            this.position = position;
+        }
+
+        private void fail(Throwable cause) {
+            done.completeExceptionally(cause);
+            if (position != null)
+                position.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Logger;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+//payments as fixed-width binary records in memory-mapped segment files:
+//header = magic, version, record size, committed record count; record = table, type ordinal, amount, epoch millis.
+//version 1 segments (16-byte records without the timestamp) are still read, new records always go to version 2 segments.
+//a position is the segment number in the high 32 bits and the record index in the low ones; compact() deletes
+//whole segments, the remaining ones keep their numbers so positions stay valid
+public class MappedPaymentStore implements PaymentStore {
+    static final int MAGIC = 0x505A5053;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+    static final int V1_RECORD_SIZE = 16;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final PaymentType[] TYPES = PaymentType.values();
+    private static final int COUNT_OFFSET = 12;
+    private static final String SEGMENT_PREFIX = "payments-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 64 * 1024;
+
+    private final File directory;
+    private final int recordsPerSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    //number of segments.get(0), above 0 once older segments were compacted away
+    private int firstSegment;
+    //number of the first segment written since the last sync
+    private int unsyncedFrom = Integer.MAX_VALUE;
+    static final Logger logger = Logger.getLogger(MappedPaymentStore.class);
+
+    public MappedPaymentStore(File directory) {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    public MappedPaymentStore(File directory, int recordsPerSegment) {
+        if (recordsPerSegment < 1)
+            throw new IllegalArgumentException("A segment has to hold at least one record.");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("Segment directory " + directory + " could not be created.");
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        openSegments();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private void openSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null)
+            return;
+        Arrays.sort(files);
+        if (files.length > 0)
+            firstSegment = segmentNumber(files[0]);
+        try {
+            for (File f : files)
+                segments.add(map(f, f.length()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Payment segments in " + directory + " could not be mapped.", e);
+        }
+    }
+
+    private static MappedByteBuffer map(File f, long size) throws IOException {
+        if (size < HEADER_SIZE)
+            throw new IOException(f + " is not a payment segment.");
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw");
+             FileChannel channel = raf.getChannel()) {
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) == 0) {
+                buffer.putInt(0, MAGIC);
+                writeHeader(buffer);
+            } else if (buffer.getInt(0) != MAGIC
+                    || (recordSize(buffer) != RECORD_SIZE && recordSize(buffer) != V1_RECORD_SIZE)) {
+                throw new IOException(f + " is not a payment segment.");
+            }
+            return buffer;
+        }
+    }
+
+    //an empty segment in the current format
+    private static void writeHeader(MappedByteBuffer segment) {
+        segment.putInt(VERSION_OFFSET, VERSION);
+        segment.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        segment.putInt(COUNT_OFFSET, 0);
+    }
+
+    private static int recordSize(MappedByteBuffer segment) {
+        return segment.getInt(RECORD_SIZE_OFFSET);
+    }
+
+    private MappedByteBuffer newSegment() throws IOException {
+        MappedByteBuffer segment = map(segmentFile(firstSegment + segments.size()), HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+        segments.add(segment);
+        return segment;
+    }
+
+    private File segmentFile(int index) {
+        return new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static long position(int segment, int index) {
+        return (long) segment << 32 | index;
+    }
+
+    private static int capacity(MappedByteBuffer segment) {
+        return (segment.capacity() - HEADER_SIZE) / recordSize(segment);
+    }
+
+    private static Payment read(MappedByteBuffer segment, int index) {
+        int recordSize = recordSize(segment);
+        int offset = HEADER_SIZE + index * recordSize;
+        int type = segment.getInt(offset + 4);
+        long timestamp = recordSize == RECORD_SIZE ? segment.getLong(offset + 16) : 0;
+        return new Payment(segment.getInt(offset), type < 0 ? null : TYPES[type], segment.getDouble(offset + 8), timestamp);
+    }
+
+    @Override
+    public synchronized void readAll(Consumer<Payment> consumer) {
+        for (MappedByteBuffer segment : segments) {
+            int count = segment.getInt(COUNT_OFFSET);
+            for (int i = 0; i < count; i++)
+                consumer.accept(read(segment, i));
+        }
+    }
+
+    @Override
+    public synchronized long position() {
+        if (segments.isEmpty())
+            return position(firstSegment, 0);
+        return position(firstSegment + segments.size() - 1, segments.get(segments.size() - 1).getInt(COUNT_OFFSET));
+    }
+
+    @Override
+    public synchronized void readFrom(long position, Consumer<Payment> consumer) {
+        int segment = (int) (position >>> 32);
+        //the payments between position and the first segment are gone, replaying the rest would undercount
+        if (segment < firstSegment)
+            throw new IllegalStateException("Payments from segment " + segment + " on were requested, but segments before "
+                    + firstSegment + " in " + directory + " were compacted.");
+        for (int s = segment - firstSegment; s < segments.size(); s++) {
+            MappedByteBuffer current = segments.get(s);
+            int count = current.getInt(COUNT_OFFSET);
+            for (int i = firstSegment + s == segment ? (int) position : 0; i < count; i++)
+                consumer.accept(read(current, i));
+        }
+    }
+
+    //deletes the segments that lie entirely before position; the files are removed outside the lock
+    @Override
+    public void compact(long position) {
+        List<File> dropped = new ArrayList<>();
+        synchronized (this) {
+            int keepFrom = Math.min((int) (position >>> 32), firstSegment + segments.size() - 1);
+            while (firstSegment < keepFrom) {
+                segments.remove(0);
+                dropped.add(segmentFile(firstSegment++));
+            }
+        }
+        for (File segment : dropped)
+            if (!segment.delete())
+                logger.warn("Could not delete compacted payment segment " + segment);
+    }
+
+    //covers the records committed when the stream is created; records are decoded one at a time from the mapping
+    @Override
+    public synchronized Stream<Payment> stream() {
+        List<MappedByteBuffer> current = new ArrayList<>(segments);
+        int[] counts = new int[current.size()];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = current.get(i).getInt(COUNT_OFFSET);
+        return IntStream.range(0, counts.length).boxed()
+                .flatMap(s -> IntStream.range(0, counts[s]).mapToObj(i -> read(current.get(s), i)));
+    }
+
+    @Override
+    public void append(Payment payment) {
+        try {
+            appendAll(Collections.singletonList(payment));
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //the record is written before the header count is bumped, so a crash never exposes a half-written record
+    @Override
+    public synchronized void appendAll(List<Payment> payments) throws IOException {
+        MappedByteBuffer tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        for (Payment p : payments) {
+            if (tail == null || recordSize(tail) != RECORD_SIZE || tail.getInt(COUNT_OFFSET) == capacity(tail))
+                tail = newSegment();
+            unsyncedFrom = Math.min(unsyncedFrom, firstSegment + segments.size() - 1);
+            int count = tail.getInt(COUNT_OFFSET);
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            tail.putInt(offset, p.getTableNumber());
+            tail.putInt(offset + 4, p.getType() == null ? -1 : p.getType().ordinal());
+            tail.putDouble(offset + 8, p.getAmount());
+            tail.putLong(offset + 16, p.getTimestamp());
+            tail.putInt(COUNT_OFFSET, count + 1);
+        }
+    }
+
+    //segments started after position are deleted, the records past it in its segment are uncounted
+    @Override
+    public synchronized void truncate(long position) {
+        int segment = (int) (position >>> 32);
+        if (segment < firstSegment)
+            throw new IllegalStateException("Can not truncate to segment " + segment + ", segments before "
+                    + firstSegment + " in " + directory + " were compacted.");
+        while (!segments.isEmpty() && firstSegment + segments.size() - 1 > segment) {
+            File last = segmentFile(firstSegment + segments.size() - 1);
+            segments.remove(segments.size() - 1);
+            if (!last.delete())
+                logger.warn("Could not delete payment segment " + last);
+        }
+        if (firstSegment + segments.size() - 1 == segment)
+            segments.get(segments.size() - 1).putInt(COUNT_OFFSET, (int) position);
+    }
+
+    @Override
+    public synchronized void rewrite(List<Payment> payments) {
+        for (MappedByteBuffer segment : segments)
+            writeHeader(segment);
+        //keep the first segment and reuse it, the rest are dropped
+        while (segments.size() > 1) {
+            File last = segmentFile(firstSegment + segments.size() - 1);
+            segments.remove(segments.size() - 1);
+            if (!last.delete())
+                logger.warn("Could not delete payment segment " + last);
+        }
+        unsyncedFrom = firstSegment;
+        try {
+            appendAll(payments);
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //only the segments written since the last sync are forced
+    @Override
+    public synchronized void sync() {
+        for (int s = Math.max(unsyncedFrom - firstSegment, 0); s < segments.size(); s++)
+            segments.get(s).force();
+        unsyncedFrom = Integer.MAX_VALUE;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+}
@@ -1,48 +1,107 @@
 package pizzashop.repository;
 
 import org.apache.log4j.Logger;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.MenuCatalog;
 import pizzashop.model.MenuDataModel;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MenuRepository {
     private static String filename = "data/menu.txt";
-    private List<MenuDataModel> listMenu;
+    //the parsed menu together with the file stamp it was read from, swapped as one unit
+    private final AtomicReference<Loaded> current = new AtomicReference<>();
+    //null reads the menu from the classpath
+    private final File file;
+    private final LatencyHistogram loadLatency = MetricsRegistry.getDefault().histogram("repository.menu.load");
     static final Logger logger = Logger.getLogger(MenuRepository.class);
 
-    private void readMenu() {
+    private static final class Loaded {
+        private final long lastModified;
+        private final long length;
+        private final MenuCatalog catalog;
+
+        private Loaded(long lastModified, long length, MenuCatalog catalog) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.catalog = catalog;
+        }
+    }
+
+    public MenuRepository() {
+        this(null);
+    }
+
+    public MenuRepository(File file) {
+        this.file = file;
+    }
+
+    private File getFile() {
+        if (file != null)
+            return file;
         ClassLoader classLoader = MenuRepository.class.getClassLoader();
-        File file = new File(classLoader.getResource(filename).getFile());
-        this.listMenu = new ArrayList();
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                MenuDataModel menuItem = getMenuItem(line);
-                listMenu.add(menuItem);
-            }
+        return new File(classLoader.getResource(filename).getFile());
+    }
+
+    private MenuCatalog readMenu(File file, long version) {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        try (RecordReader reader = new RecordReader(new FileInputStream(file))) {
+            while (reader.next())
+                getMenuItem(reader, file, names, prices);
         } catch (IOException e) {
             logger.error(e);
         }
+        double[] priceArray = new double[prices.size()];
+        for (int i = 0; i < priceArray.length; i++)
+            priceArray[i] = prices.get(i);
+        MenuCatalog catalog = new MenuCatalog(version, names.toArray(new String[0]), priceArray);
+        loadLatency.recordSince(start);
+        return catalog;
+    }
+
+    //a malformed line is logged with its position and left out of the menu
+    private void getMenuItem(RecordReader reader, File file, List<String> names, List<Double> prices) {
+        try {
+            double price = reader.getDouble(1);
+            names.add(reader.getString(0));
+            prices.add(price);
+        } catch (RecordReader.MalformedRecordException e) {
+            logger.warn("Skipping malformed menu item in " + file + ": " + e.getMessage());
+        }
     }
 
-    private MenuDataModel getMenuItem(String line) {
-        MenuDataModel item = null;
-        if (line == null || line.equals("")) return null;
-        StringTokenizer st = new StringTokenizer(line, ",");
-        String name = st.nextToken();
-        double price = Double.parseDouble(st.nextToken());
-        item = new MenuDataModel(name, 0, price);
-        return item;
+    //re-parses the menu file only when its modification stamp changed since the last load
+    public MenuCatalog getCatalog() {
+        File file = getFile();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Loaded loaded = current.get();
+        while (loaded == null || loaded.lastModified != lastModified || loaded.length != length) {
+            long version = loaded == null ? 1 : loaded.catalog.getVersion() + 1;
+            Loaded fresh = new Loaded(lastModified, length, readMenu(file, version));
+            if (current.compareAndSet(loaded, fresh)) {
+                logger.info("Loaded menu version " + version + " with " + fresh.catalog.size() + " items");
+                return fresh.catalog;
+            }
+            loaded = current.get();
+        }
+        return loaded.catalog;
     }
 
+    //each table gets its own items so quantities are not shared, the parsing itself is cached
     public List<MenuDataModel> getMenu() {
-        readMenu();//create a new menu for each table, on request
+        MenuCatalog catalog = getCatalog();
+        List<MenuDataModel> listMenu = new ArrayList<>(catalog.size());
+        for (int i = 0; i < catalog.size(); i++)
+            listMenu.add(new MenuDataModel(catalog.getName(i), 0, catalog.getPrice(i)));
         return listMenu;
     }
 
@@ -0,0 +1,157 @@
+package pizzashop.repository;
+
+import pizzashop.model.Payment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+//parses a payments file as line-aligned chunks on a fork-join pool and hands the payments over in file order
+public class ParallelPaymentLoader {
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    public ParallelPaymentLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public ParallelPaymentLoader(ForkJoinPool pool, int chunkBytes) {
+        if (chunkBytes < 1)
+            throw new IllegalArgumentException("Chunks have to be at least one byte.");
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public void load(File file, Consumer<Payment> consumer) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long[] bounds = chunkBounds(channel);
+            List<List<Payment>> chunks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++)
+                chunks.add(null);
+            try {
+                pool.invoke(new ParseChunks(file, channel, bounds, chunks, 0, bounds.length - 1));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (List<Payment> chunk : chunks)
+                chunk.forEach(consumer);
+        }
+    }
+
+    //chunk i is [bounds[i], bounds[i + 1]); every bound but the first sits right after a newline,
+    //an unterminated last line is left out like PaymentJournal does
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = lastLineEnd(channel);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = 0;
+        ByteBuffer scan = ByteBuffer.allocate(256);
+        while (size - position > chunkBytes) {
+            position = nextLineStart(channel, position + chunkBytes, scan);
+            if (position >= size)
+                break;
+            bounds.add(position);
+        }
+        bounds.add(size);
+        long[] array = new long[bounds.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = bounds.get(i);
+        return array;
+    }
+
+    //position right after the last newline, 0 when there is none
+    private static long lastLineEnd(FileChannel channel) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(256);
+        long end = channel.size();
+        while (end > 0) {
+            int length = (int) Math.min(scan.capacity(), end);
+            scan.clear();
+            scan.limit(length);
+            long from = end - length;
+            while (scan.hasRemaining())
+                if (channel.read(scan, from + scan.position()) < 0)
+                    return 0;
+            for (int i = length - 1; i >= 0; i--)
+                if (scan.get(i) == '\n')
+                    return from + i + 1;
+            end = from;
+        }
+        return 0;
+    }
+
+    //position right after the first newline at or after from, or the file size when there is none
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer scan) throws IOException {
+        long position = from;
+        while (true) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read < 0)
+                return channel.size();
+            for (int i = 0; i < read; i++)
+                if (scan.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+    }
+
+    //positional reads leave the channel position alone, so the chunks can be read concurrently
+    static List<Payment> parse(File file, FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0)
+                break;
+        }
+        List<Payment> payments = new ArrayList<>();
+        RecordReader reader = new RecordReader(buffer.array(), buffer.position());
+        while (reader.next()) {
+            Payment payment = PaymentJournal.readPayment(reader, file, start);
+            if (payment != null)
+                payments.add(payment);
+        }
+        return payments;
+    }
+
+    private static final class ParseChunks extends RecursiveAction {
+        private final File file;
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final List<List<Payment>> chunks;
+        private final int from;
+        private final int to;
+
+        private ParseChunks(File file, FileChannel channel, long[] bounds, List<List<Payment>> chunks, int from, int to) {
+            this.file = file;
+            this.channel = channel;
+            this.bounds = bounds;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseChunks(file, channel, bounds, chunks, from, mid), new ParseChunks(file, channel, bounds, chunks, mid, to));
+                return;
+            }
+            try {
+                //each task writes its own slot, invokeAll makes the writes visible to the caller
+                chunks.set(from, parse(file, channel, bounds[from], bounds[from + 1]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pizzashop.repository;
+
+import pizzashop.model.Payment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//converts payment history between the text journal and the mapped binary segments
+public class PaymentFileConverter {
+    private static final int CHUNK_SIZE = 4096;
+
+    private PaymentFileConverter() {
+    }
+
+    public static void textToBinary(File textFile, File segmentDirectory) {
+        try (PaymentStore from = new PaymentJournal(textFile);
+             PaymentStore to = new MappedPaymentStore(segmentDirectory)) {
+            copy(from, to);
+        }
+    }
+
+    public static void binaryToText(File segmentDirectory, File textFile) {
+        try (PaymentStore from = new MappedPaymentStore(segmentDirectory);
+             PaymentStore to = new PaymentJournal(textFile)) {
+            copy(from, to);
+        }
+    }
+
+    //replaces the content of the target store with the content of the source store
+    public static void copy(PaymentStore from, PaymentStore to) {
+        to.rewrite(new ArrayList<>());
+        List<Payment> chunk = new ArrayList<>(CHUNK_SIZE);
+        from.readAll(payment -> {
+            chunk.add(payment);
+            if (chunk.size() == CHUNK_SIZE)
+                flush(chunk, to);
+        });
+        flush(chunk, to);
+    }
+
+    private static void flush(List<Payment> chunk, PaymentStore to) {
+        try {
+            to.appendAll(chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunk.clear();
+    }
+
+    @java.lang.SuppressWarnings("java:S106")
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-text"))) {
+            System.out.println("Usage: PaymentFileConverter to-binary <payments.txt> <segment dir>");
+            System.out.println("       PaymentFileConverter to-text <segment dir> <payments.txt>");
+            return;
+        }
+        if (args[0].equals("to-binary"))
+            textToBinary(new File(args[1]), new File(args[2]));
+        else
+            binaryToText(new File(args[1]), new File(args[2]));
+    }
+}
@@ -0,0 +1,324 @@
+package pizzashop.repository;
+
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentAggregate;
+import pizzashop.model.PaymentType;
+import pizzashop.model.TableAggregate;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+//append-only in-memory payments stored as primitive columns, amounts in whole cents;
+//one writer at a time, any number of readers without locking.
+//rows are kept in timestamp order, so time ranges are found by binary search and summed from running totals;
+//each table also keeps the positions of its rows and its count, sum, min and max in cents.
+//recent(keep) drops all but the newest rows; the table aggregates still cover everything ever appended
+class PaymentHistory {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final byte NO_TYPE = -1;
+    private static final PaymentType[] TYPES = PaymentType.values();
+
+    //a row is published by the volatile size write that follows it, the columns only ever grow
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private volatile int size;
+    private final Map<Integer, TableRows> byTable = new ConcurrentHashMap<>();
+    private final Map<Integer, TableTotals> tableTotals;
+
+    PaymentHistory() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private PaymentHistory(Map<Integer, TableTotals> tableTotals) {
+        this.tableTotals = tableTotals;
+    }
+
+    private static final class Columns {
+        private final int[] tables;
+        private final byte[] types;
+        private final long[] cents;
+        private final long[] timestamps;
+        //cents of all rows up to and including this one
+        private final long[] runningCents;
+
+        private Columns(int capacity) {
+            this(new int[capacity], new byte[capacity], new long[capacity], new long[capacity], new long[capacity]);
+        }
+
+        private Columns(int[] tables, byte[] types, long[] cents, long[] timestamps, long[] runningCents) {
+            this.tables = tables;
+            this.types = types;
+            this.cents = cents;
+            this.timestamps = timestamps;
+            this.runningCents = runningCents;
+        }
+
+        private Columns grow() {
+            int capacity = tables.length * 2;
+            return new Columns(Arrays.copyOf(tables, capacity), Arrays.copyOf(types, capacity), Arrays.copyOf(cents, capacity),
+                    Arrays.copyOf(timestamps, capacity), Arrays.copyOf(runningCents, capacity));
+        }
+
+        private Payment get(int index) {
+            byte type = types[index];
+            return new Payment(tables[index], type == NO_TYPE ? null : TYPES[type], fromCents(cents[index]), timestamps[index]);
+        }
+
+        //first row in [0, size) whose timestamp is at least timestamp
+        private int lowerBound(int size, long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < timestamp)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        //cents of the rows in [0, end)
+        private long centsBefore(int end) {
+            return end == 0 ? 0 : runningCents[end - 1];
+        }
+    }
+
+    //positions of one table's rows, published like the columns by the volatile size
+    private static final class TableRows {
+        private volatile int[] rows = new int[INITIAL_CAPACITY];
+        private volatile int size;
+
+        private void add(int row) {
+            int[] current = rows;
+            int n = size;
+            if (n == current.length) {
+                current = Arrays.copyOf(current, n * 2);
+                rows = current;
+            }
+            current[n] = row;
+            size = n + 1;
+        }
+    }
+
+    //only read under the caller's append lock
+    private static final class TableTotals {
+        private int count;
+        private long sumCents;
+        private long minCents = Long.MAX_VALUE;
+        private long maxCents = Long.MIN_VALUE;
+
+        private void add(long cents) {
+            count++;
+            sumCents += cents;
+            minCents = Math.min(minCents, cents);
+            maxCents = Math.max(maxCents, cents);
+        }
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    //callers serialize appends and never append a timestamp older than getLastTimestamp()
+    void append(Payment payment) {
+        appendRow(payment);
+        tableTotals.computeIfAbsent(payment.getTableNumber(), table -> new TableTotals()).add(toCents(payment.getAmount()));
+    }
+
+    //appends a row that the restored table totals already include, see restoreTableTotals
+    void restoreRow(Payment payment) {
+        appendRow(payment);
+    }
+
+    private void appendRow(Payment payment) {
+        Columns current = columns;
+        int n = size;
+        if (n == current.tables.length) {
+            current = current.grow();
+            columns = current;
+        }
+        current.tables[n] = payment.getTableNumber();
+        current.types[n] = payment.getType() == null ? NO_TYPE : (byte) payment.getType().ordinal();
+        current.cents[n] = toCents(payment.getAmount());
+        current.timestamps[n] = payment.getTimestamp();
+        current.runningCents[n] = current.centsBefore(n) + current.cents[n];
+        size = n + 1;
+        byTable.computeIfAbsent(payment.getTableNumber(), table -> new TableRows()).add(n);
+    }
+
+    //a new history holding only the newest keep rows, sharing this one's table aggregates;
+    //snapshots taken from this history stay valid
+    PaymentHistory recent(int keep) {
+        PaymentHistory trimmed = new PaymentHistory(tableTotals);
+        List<Payment> rows = snapshot();
+        for (int i = Math.max(0, rows.size() - keep); i < rows.size(); i++)
+            trimmed.appendRow(rows.get(i));
+        return trimmed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //0 while the history is empty
+    long getLastTimestamp() {
+        int n = size;
+        return n == 0 ? 0 : columns.timestamps[n - 1];
+    }
+
+    //a read-only view of everything appended so far, later appends are not visible through it
+    List<Payment> snapshot() {
+        int n = size;
+        return new Snapshot(columns, 0, n);
+    }
+
+    //the payments with from <= timestamp < to, as a view
+    List<Payment> between(long from, long to) {
+        int n = size;
+        Columns current = columns;
+        int start = current.lowerBound(n, from);
+        int end = Math.max(start, current.lowerBound(n, to));
+        return new Snapshot(current, start, end);
+    }
+
+    //one aggregate per [boundaries[i], boundaries[i + 1]), boundaries have to be ascending
+    List<PaymentAggregate> aggregate(long[] boundaries) {
+        int n = size;
+        Columns current = columns;
+        List<PaymentAggregate> aggregates = new ArrayList<>(Math.max(boundaries.length - 1, 0));
+        int start = boundaries.length == 0 ? 0 : current.lowerBound(n, boundaries[0]);
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            if (boundaries[i + 1] < boundaries[i])
+                throw new IllegalArgumentException("Aggregation boundaries have to be ascending.");
+            int end = current.lowerBound(n, boundaries[i + 1]);
+            long cents = current.centsBefore(end) - current.centsBefore(start);
+            aggregates.add(new PaymentAggregate(boundaries[i], boundaries[i + 1], end - start, fromCents(cents)));
+            start = end;
+        }
+        return aggregates;
+    }
+
+    //the table's payments in time order, as a view
+    List<Payment> forTable(int table) {
+        TableRows rows = byTable.get(table);
+        if (rows == null)
+            return Collections.emptyList();
+        int n = rows.size;
+        return new TableSnapshot(rows.rows, n, columns);
+    }
+
+    //has to be called under the append lock
+    TableAggregate aggregate(int table) {
+        TableTotals totals = tableTotals.get(table);
+        if (totals == null)
+            return new TableAggregate(table, 0, 0, 0, 0);
+        return new TableAggregate(table, totals.count, fromCents(totals.sumCents), fromCents(totals.minCents), fromCents(totals.maxCents));
+    }
+
+    //has to be called under the append lock
+    List<TableAggregate> aggregateTables() {
+        List<TableAggregate> aggregates = new ArrayList<>(tableTotals.size());
+        for (Integer table : new TreeSet<>(tableTotals.keySet()))
+            aggregates.add(aggregate(table));
+        return aggregates;
+    }
+
+    //{table, count, sum, min, max} per table with amounts in cents, for PaymentSnapshot;
+    //has to be called under the append lock
+    long[][] tableTotals() {
+        long[][] totals = new long[tableTotals.size()][];
+        int i = 0;
+        for (Map.Entry<Integer, TableTotals> entry : tableTotals.entrySet()) {
+            TableTotals t = entry.getValue();
+            totals[i++] = new long[]{entry.getKey(), t.count, t.sumCents, t.minCents, t.maxCents};
+        }
+        return totals;
+    }
+
+    //puts back what tableTotals() returned, before any row is appended
+    void restoreTableTotals(long[][] totals) {
+        for (long[] t : totals) {
+            TableTotals restored = new TableTotals();
+            restored.count = (int) t[1];
+            restored.sumCents = t[2];
+            restored.minCents = t[3];
+            restored.maxCents = t[4];
+            tableTotals.put((int) t[0], restored);
+        }
+    }
+
+    private static final class TableSnapshot extends AbstractList<Payment> implements RandomAccess {
+        private final int[] rows;
+        private final int size;
+        private final Columns columns;
+
+        private TableSnapshot(int[] rows, int size, Columns columns) {
+            this.rows = rows;
+            this.size = size;
+            this.columns = columns;
+        }
+
+        @Override
+        public Payment get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return columns.get(rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    //payments are materialized on access and compared by value
+    private static final class Snapshot extends AbstractList<Payment> implements RandomAccess {
+        private final Columns columns;
+        private final int offset;
+        private final int size;
+
+        private Snapshot(Columns columns, int start, int end) {
+            this.columns = columns;
+            this.offset = start;
+            this.size = end - start;
+        }
+
+        @Override
+        public Payment get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return columns.get(offset + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Payment))
+                return -1;
+            for (int i = 0; i < size; i++)
+                if (get(i).equals(o))
+                    return i;
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+    }
+}
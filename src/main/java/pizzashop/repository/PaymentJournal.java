@@ -0,0 +1,225 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Logger;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//append-only payments file: one "table,TYPE,amount[,epochMillis]" record per line, each record written once
+public class PaymentJournal implements PaymentStore {
+    private File file;
+    private static final PaymentType[] TYPES = PaymentType.values();
+    private static final byte[][] TYPE_NAMES = RecordReader.names(TYPES);
+    static final Logger logger = Logger.getLogger(PaymentJournal.class);
+
+    public PaymentJournal(String filename) {
+        ClassLoader classLoader = PaymentJournal.class.getClassLoader();
+        this.file = new File(classLoader.getResource(filename).getFile());
+    }
+
+    public PaymentJournal(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void readAll(Consumer<Payment> consumer) {
+        try (RecordReader reader = RecordReader.completeLines(new FileInputStream(file))) {
+            while (reader.next()) {
+                Payment payment = readPayment(reader, file, 0);
+                if (payment != null)
+                    consumer.accept(payment);
+            }
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //positions are byte offsets; the journal is one file, so compact() keeps everything
+    @Override
+    public long position() {
+        return file.length();
+    }
+
+    @Override
+    public void readFrom(long position, Consumer<Payment> consumer) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            in.getChannel().position(position);
+            try (RecordReader reader = RecordReader.completeLines(in)) {
+                while (reader.next()) {
+                    Payment payment = readPayment(reader, file, position);
+                    if (payment != null)
+                        consumer.accept(payment);
+                }
+            }
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        RecordReader reader;
+        try {
+            reader = RecordReader.completeLines(new FileInputStream(file));
+        } catch (IOException e) {
+            logger.error(e);
+            return Stream.empty();
+        }
+        Iterator<Payment> payments = new Iterator<Payment>() {
+            private Payment next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null && reader.next())
+                        next = readPayment(reader, file, 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return next != null;
+            }
+
+            @Override
+            public Payment next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Payment payment = next;
+                next = null;
+                return payment;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(payments, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        logger.error(e);
+                    }
+                });
+    }
+
+    //files smaller than one chunk are read sequentially
+    @Override
+    public void readAllParallel(Consumer<Payment> consumer) {
+        if (file.length() <= ParallelPaymentLoader.DEFAULT_CHUNK_BYTES) {
+            readAll(consumer);
+            return;
+        }
+        try {
+            new ParallelPaymentLoader().load(file, consumer);
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //a record is complete only once its newline is on disk, so an unterminated last line is a torn write;
+    //truncating it is only safe while nobody appends, see PaymentStore.recover
+    @Override
+    public void recover() {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long length = raf.length();
+            long end = length;
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n')
+                    break;
+                end--;
+            }
+            if (end < length) {
+                logger.warn("Discarding torn payment record (" + (length - end) + " bytes) at the end of " + file);
+                raf.setLength(end);
+            }
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //decodes the reader's current record; a malformed one is logged with its position and skipped (null).
+    //baseOffset is where the reader's input starts in the file; a reader that starts inside the file
+    //does not know how many lines come before, so only the byte offset is logged then
+    static Payment readPayment(RecordReader reader, File file, long baseOffset) {
+        try {
+            int tableNumber = reader.getInt(0);
+            PaymentType type = TYPES[reader.getChoice(1, TYPE_NAMES)];
+            double amount = reader.getDouble(2);
+            long timestamp = reader.fieldCount() > 3 ? reader.getLong(3) : 0;
+            return new Payment(tableNumber, type, amount, timestamp);
+        } catch (RecordReader.MalformedRecordException e) {
+            logger.warn("Skipping malformed payment in " + file + ": "
+                    + (baseOffset == 0 ? e.getMessage() : e.getReason() + " at byte " + (baseOffset + e.getOffset())));
+            return null;
+        }
+    }
+
+    @Override
+    public void append(Payment payment) {
+        try {
+            appendAll(Collections.singletonList(payment));
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //writes a whole batch of records with a single write call
+    @Override
+    public void appendAll(List<Payment> payments) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Payment p : payments) {
+            String record = p.toString();
+            logger.info(record);
+            sb.append(record).append(System.lineSeparator());
+        }
+        try (Writer w = new FileWriter(file, true)) {
+            w.write(sb.toString());
+        }
+    }
+
+    @Override
+    public void truncate(long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+        }
+    }
+
+    @Override
+    public void rewrite(List<Payment> payments) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (Payment p : payments) {
+                logger.info(p.toString());
+                bw.write(p.toString());
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    //appends close their descriptor, but an fsync through any descriptor covers all the file's written data
+    @Override
+    public void sync() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        //every append opens and closes the file, nothing is held open
+    }
+}
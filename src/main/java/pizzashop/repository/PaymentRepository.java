@@ -1,73 +1,355 @@
 package pizzashop.repository;
 
 import org.apache.log4j.Logger;
+import pizzashop.metrics.Gauge;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
 import pizzashop.model.Payment;
+import pizzashop.model.PaymentAggregate;
 import pizzashop.model.PaymentType;
+import pizzashop.model.TableAggregate;
 
-import java.io.*;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.List;
-import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
-public class PaymentRepository {
-    private String filename;
-    private List<Payment> paymentList;
+public class PaymentRepository implements AutoCloseable {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private PaymentStore store;
+    private GroupCommitWriter writer;
+    //payments kept in memory; with a bounded window it is swapped for a trimmed copy now and then
+    private volatile PaymentHistory history = new PaymentHistory();
+    private final int residentWindow;
+    private final SnapshotWriter snapshots;
+    //payments recorded since the last snapshot was taken
+    private int sinceSnapshot;
+    //running total in cents per payment type, indexed by ordinal
+    private final long[] totals = new long[PaymentType.values().length];
+    //appends take the lock so the store, the history and the totals see payments in the same order;
+    //it is never held across disk I/O, so readers of the totals and group commit submitters do not wait for the disk
+    private final Object lock = new Object();
+    //keeps payments reaching the store in the order they were put in time order: held across direct store writes,
+    //and around group commit submissions so writeAll and close can replace the writer; taken before lock
+    private final Object appendLock = new Object();
+    //timestamp of the last payment put in time order, which with group commit may not be recorded yet
+    private long lastOrdered;
+    private final LatencyHistogram appendLatency = MetricsRegistry.getDefault().histogram("repository.payment.append");
+    private final LatencyHistogram writeAllLatency = MetricsRegistry.getDefault().histogram("repository.payment.write_all");
+    private final Gauge countGauge;
     static final Logger logger = Logger.getLogger(PaymentRepository.class);
 
     public PaymentRepository(String filename) {
-        this.paymentList = new ArrayList<>();
-        this.filename = filename;
+        this(new PaymentJournal(filename));
+    }
+
+    //payments are persisted in the background, batchSize records or lingerMillis at a time
+    public PaymentRepository(String filename, int batchSize, long lingerMillis) {
+        this(new PaymentJournal(filename), batchSize, lingerMillis);
+    }
+
+    public PaymentRepository(PaymentStore store) {
+        this(store, UNBOUNDED);
+    }
+
+    //keeps only the newest residentWindow to 2 * residentWindow payments in memory: getAll(), getBetween() and
+    //getByTable() see just those, while the totals and table aggregates still cover the whole history
+    //and stream() reads all of it from the store
+    public PaymentRepository(PaymentStore store, int residentWindow) {
+        this(store, residentWindow, (SnapshotWriter) null);
+    }
+
+    //every snapshotInterval payments the totals, the table aggregates and the resident window are written to
+    //snapshotFile in the background, and the store drops what the snapshot covers; startup loads the snapshot
+    //and replays only the payments stored after it. Needs a bounded resident window
+    public PaymentRepository(PaymentStore store, int residentWindow, File snapshotFile, int snapshotInterval) {
+        this(store, residentWindow, new SnapshotWriter(snapshotFile, snapshotInterval, store));
+    }
+
+    private PaymentRepository(PaymentStore store, int residentWindow, SnapshotWriter snapshots) {
+        if (residentWindow < 1)
+            throw new IllegalArgumentException("The resident window has to hold at least one payment.");
+        if (snapshots != null && residentWindow == UNBOUNDED)
+            throw new IllegalArgumentException("Snapshots need a bounded resident window.");
+        this.store = store;
+        this.residentWindow = residentWindow;
+        this.snapshots = snapshots;
+        long start = System.nanoTime();
         readPayments();
+        MetricsRegistry.getDefault().histogram("repository.payment.load").recordSince(start);
+        countGauge = MetricsRegistry.getDefault().gauge("repository.payment.count", this, repository -> repository.history.size());
+    }
+
+    public PaymentRepository(PaymentStore store, int batchSize, long lingerMillis) {
+        this(store, UNBOUNDED, batchSize, lingerMillis);
+    }
+
+    public PaymentRepository(PaymentStore store, int residentWindow, int batchSize, long lingerMillis) {
+        this(store, residentWindow);
+        this.writer = new GroupCommitWriter(store, batchSize, lingerMillis, this::recordWritten);
+    }
+
+    public PaymentRepository(PaymentStore store, int residentWindow, File snapshotFile, int snapshotInterval,
+                             int batchSize, long lingerMillis) {
+        this(store, residentWindow, snapshotFile, snapshotInterval);
+        this.writer = new GroupCommitWriter(store, batchSize, lingerMillis, this::recordWritten);
     }
 
     private void readPayments() {
-        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
-        File file = new File(classLoader.getResource(filename).getFile());
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file));) {
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                Payment payment = getPayment(line);
-                paymentList.add(payment);
+        synchronized (lock) {
+            store.recover();
+            PaymentSnapshot snapshot = snapshots == null ? null : snapshots.load();
+            if (snapshot != null && snapshot.getPosition() > store.position()) {
+                logger.warn("Payment snapshot " + snapshots.getFile() + " is ahead of the store, replaying the whole store");
+                snapshot = null;
+            }
+            //a bounded window has to load in constant memory, so only unbounded histories parse in parallel
+            if (snapshot != null) {
+                restore(snapshot);
+                store.readFrom(snapshot.getPosition(), this::load);
+            } else if (residentWindow == UNBOUNDED) {
+                store.readAllParallel(this::load);
+            } else {
+                store.readAll(this::load);
             }
-        } catch (IOException e) {
-            logger.error(e);
+            //a long replay is snapshotted right away, so the next start does not repeat it
+            snapshotWhenDue();
         }
     }
 
-    private Payment getPayment(String line) {
-        Payment item = null;
-        if (line == null || line.equals("")) return null;
-        StringTokenizer st = new StringTokenizer(line, ",");
-        int tableNumber = Integer.parseInt(st.nextToken());
-        String type = st.nextToken();
-        double amount = Double.parseDouble(st.nextToken());
-        item = new Payment(tableNumber, PaymentType.valueOf(type), amount);
-        return item;
+    private void restore(PaymentSnapshot snapshot) {
+        long[] typeCents = snapshot.getTypeCents();
+        System.arraycopy(typeCents, 0, totals, 0, Math.min(typeCents.length, totals.length));
+        history.restoreTableTotals(snapshot.getTableTotals());
+        for (Payment payment : snapshot.getRecent())
+            history.restoreRow(payment);
     }
 
+    //called under the lock; only the totals and the table aggregates are copied here, the resident payments are
+    //an immutable view and the file is written by the snapshot thread, so appends wait for a few array copies at most
+    private void snapshotWhenDue() {
+        if (snapshots == null || sinceSnapshot < snapshots.getInterval())
+            return;
+        //payments are only recorded once stored, and the callers keep other writes out (appendLock without group commit,
+        //the writer thread with it), so the store holds exactly what was recorded
+        CompletableFuture<Long> position = CompletableFuture.completedFuture(store.position());
+        if (snapshots.submit(position, totals.clone(), history.tableTotals(), recent()))
+            sinceSnapshot = 0;
+    }
+
+    private List<Payment> recent() {
+        List<Payment> all = history.snapshot();
+        return all.subList(Math.max(0, all.size() - residentWindow), all.size());
+    }
+
+    //throws UncheckedIOException when the payment could not be stored or synced; it is not recorded then, and
+    //a store that was written but not synced is truncated back (see Durability), so retrying does not count it twice
     public void add(Payment payment) {
-        paymentList.add(payment);
-        writeAll();
+        long start = System.nanoTime();
+        if (writer == null) {
+            addDirect(payment);
+            appendLatency.recordSince(start);
+            return;
+        }
+        CompletableFuture<Void> written;
+        synchronized (appendLock) {
+            synchronized (lock) {
+                written = writer.submit(inTimeOrder(payment));
+            }
+        }
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            throw storeFailure(e.getCause());
+        }
+        appendLatency.recordSince(start);
+    }
+
+    //the writer fails a batch with the store's exception; callers see the same UncheckedIOException as without group commit
+    private static UncheckedIOException storeFailure(Throwable cause) {
+        if (cause instanceof UncheckedIOException)
+            return (UncheckedIOException) cause;
+        return new UncheckedIOException("Payment could not be stored", cause instanceof IOException ? (IOException) cause : new IOException(cause));
     }
 
+    //the future completes once the payment is on disk and visible through getAll(); a payment that could not
+    //be stored is never recorded and the future fails with UncheckedIOException
+    public CompletableFuture<Payment> addAsync(Payment payment) {
+        if (writer == null) {
+            try {
+                return CompletableFuture.completedFuture(addDirect(payment));
+            } catch (UncheckedIOException e) {
+                CompletableFuture<Payment> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        Payment ordered;
+        CompletableFuture<Void> written;
+        synchronized (appendLock) {
+            synchronized (lock) {
+                ordered = inTimeOrder(payment);
+                written = writer.submit(ordered);
+            }
+        }
+        CompletableFuture<Payment> stored = new CompletableFuture<>();
+        written.whenComplete((ignored, e) -> {
+            if (e == null)
+                stored.complete(ordered);
+            else
+                stored.completeExceptionally(storeFailure(e));
+        });
+        return stored;
+    }
+
+    //runs on the writer thread for each stored batch, in store order; only takes lock, so the writer can be
+    //closed while holding appendLock
+    private void recordWritten(List<Payment> payments) {
+        synchronized (lock) {
+            for (Payment payment : payments)
+                record(payment);
+            snapshotWhenDue();
+        }
+    }
+
+    //writes without holding lock, one payment at a time; a payment that could not be written,
+    //or synced as the store's durability asks, is not recorded.
+    //concurrent terminals still take turns on the file, group commit lets them share the writes
+    private Payment addDirect(Payment payment) {
+        synchronized (appendLock) {
+            Payment ordered;
+            synchronized (lock) {
+                ordered = inTimeOrder(payment);
+            }
+            try {
+                store.appendAll(Collections.singletonList(ordered));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Payment could not be stored", e);
+            }
+            synchronized (lock) {
+                record(ordered);
+                snapshotWhenDue();
+            }
+            return ordered;
+        }
+    }
+
+    //the history is kept in time order, a payment stamped before the last one (clock set back) is moved up to it
+    private Payment inTimeOrder(Payment payment) {
+        long last = Math.max(history.getLastTimestamp(), lastOrdered);
+        if (payment.getTimestamp() >= last) {
+            lastOrdered = payment.getTimestamp();
+            return payment;
+        }
+        //untimed (0) payments predate stored timestamps, moving them up is expected and not warned about
+        if (payment.getTimestamp() != 0)
+            logger.warn("Payment at " + payment.getTimestamp() + " is older than the last one, recording it at " + last);
+        lastOrdered = last;
+        return new Payment(payment.getTableNumber(), payment.getType(), payment.getAmount(), last);
+    }
+
+    private void load(Payment payment) {
+        record(inTimeOrder(payment));
+    }
+
+    //the payment has to be in time order already
+    private void record(Payment ordered) {
+        history.append(ordered);
+        //size >= 2 * window, without overflowing for windows above Integer.MAX_VALUE / 2
+        if (residentWindow != UNBOUNDED && history.size() - residentWindow >= residentWindow)
+            history = history.recent(residentWindow);
+        if (ordered.getType() != null)
+            totals[ordered.getType().ordinal()] += PaymentHistory.toCents(ordered.getAmount());
+        sinceSnapshot++;
+    }
+
+    public double getTotalAmount(PaymentType type) {
+        synchronized (lock) {
+            return PaymentHistory.fromCents(totals[type.ordinal()]);
+        }
+    }
+
+    //every persisted payment, oldest first, read lazily from the store in constant memory;
+    //payments still waiting for a group commit and payments compacted into a snapshot are not included.
+    //Close the stream when done
+    public Stream<Payment> stream() {
+        return store.stream();
+    }
+
+    //a read-only snapshot, safe to iterate while other threads keep adding payments
     public List<Payment> getAll() {
-        return paymentList;
+        return history.snapshot();
+    }
+
+    //payments with from <= timestamp < to (epoch millis), found by binary search; a read-only view
+    public List<Payment> getBetween(long from, long to) {
+        return history.between(from, to);
+    }
+
+    //count and total per [boundaries[i], boundaries[i + 1]), each bucket costs two binary searches
+    public List<PaymentAggregate> aggregate(long[] boundaries) {
+        return history.aggregate(boundaries);
     }
 
+    //the table's payments in time order, read from the per-table index; a read-only view
+    public List<Payment> getByTable(int table) {
+        return history.forTable(table);
+    }
+
+    //kept up to date on every add, so this never scans the payments
+    public TableAggregate getTableAggregate(int table) {
+        synchronized (lock) {
+            return history.aggregate(table);
+        }
+    }
+
+    //every table that has payments, by table number
+    public List<TableAggregate> getTableAggregates() {
+        synchronized (lock) {
+            return history.aggregateTables();
+        }
+    }
+
+    //compacts the store by rewriting it from the in-memory history; with a bounded window memory does not hold
+    //everything, so the store is only flushed
     public void writeAll() {
-        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
-        File file = new File(classLoader.getResource(filename).getFile());
-
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-            for (Payment p : paymentList) {
-                logger.info(p.toString());
-                bw.write(p.toString());
-                bw.newLine();
+        long start = System.nanoTime();
+        synchronized (appendLock) {
+            //the last batches are recorded under lock by the writer thread, so it is not held while closing
+            if (writer != null)
+                writer.close();
+            synchronized (lock) {
+                if (residentWindow == UNBOUNDED)
+                    store.rewrite(history.snapshot());
+                if (writer != null)
+                    writer = new GroupCommitWriter(store, writer.getBatchSize(), writer.getLingerMillis(), this::recordWritten);
+            }
+        }
+        writeAllLatency.recordSince(start);
+    }
+
+    //with snapshots, a last one is written so the next start has no tail to replay
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (writer != null)
+                writer.close();
+            synchronized (lock) {
+                if (snapshots != null) {
+                    snapshots.close();
+                    if (sinceSnapshot > 0)
+                        snapshots.write(new PaymentSnapshot(store.position(), totals.clone(), history.tableTotals(), recent()));
+                    sinceSnapshot = 0;
+                }
+                store.close();
             }
-        } catch (IOException e) {
-            logger.error(e);
         }
+        MetricsRegistry.getDefault().removeGauge("repository.payment.count", countGauge);
     }
 
 }
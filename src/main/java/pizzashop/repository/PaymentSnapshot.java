@@ -0,0 +1,130 @@
+package pizzashop.repository;
+
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//PaymentRepository state up to a store position: the totals per payment type and per table and the newest payments.
+//file = magic, version, position, type totals, {table, count, sum, min, max} per table,
+//then {table, type ordinal, cents, epoch millis} per payment; amounts in cents
+final class PaymentSnapshot {
+    static final int MAGIC = 0x505A534E;
+    static final int VERSION = 1;
+    private static final PaymentType[] TYPES = PaymentType.values();
+
+    private final long position;
+    private final long[] typeCents;
+    private final long[][] tableTotals;
+    private final List<Payment> recent;
+
+    PaymentSnapshot(long position, long[] typeCents, long[][] tableTotals, List<Payment> recent) {
+        this.position = position;
+        this.typeCents = typeCents;
+        this.tableTotals = tableTotals;
+        this.recent = recent;
+    }
+
+    //the store position right after the last payment the snapshot covers
+    long getPosition() {
+        return position;
+    }
+
+    //running total in cents per payment type, indexed by ordinal
+    long[] getTypeCents() {
+        return typeCents;
+    }
+
+    //see PaymentHistory.tableTotals()
+    long[][] getTableTotals() {
+        return tableTotals;
+    }
+
+    //the newest payments, oldest first
+    List<Payment> getRecent() {
+        return recent;
+    }
+
+    //replaces the file in one step, so a crash leaves either the old or the new snapshot;
+    //the content and then the rename are synced, because the store drops what the snapshot covers right after
+    void write(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile("payments", ".tmp", parent);
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position);
+            out.writeInt(typeCents.length);
+            for (long cents : typeCents)
+                out.writeLong(cents);
+            out.writeInt(tableTotals.length);
+            for (long[] table : tableTotals) {
+                out.writeInt((int) table[0]);
+                out.writeInt((int) table[1]);
+                out.writeLong(table[2]);
+                out.writeLong(table[3]);
+                out.writeLong(table[4]);
+            }
+            out.writeInt(recent.size());
+            for (Payment p : recent) {
+                out.writeInt(p.getTableNumber());
+                out.writeByte(p.getType() == null ? -1 : p.getType().ordinal());
+                out.writeLong(PaymentHistory.toCents(p.getAmount()));
+                out.writeLong(p.getTimestamp());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(parent.toPath(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    static PaymentSnapshot read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a payment snapshot.");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException(file + " has unsupported snapshot version " + version);
+            long position = in.readLong();
+            long[] typeCents = new long[TYPES.length];
+            int types = in.readInt();
+            for (int i = 0; i < types; i++) {
+                long cents = in.readLong();
+                if (i < typeCents.length)
+                    typeCents[i] = cents;
+            }
+            long[][] tableTotals = new long[in.readInt()][];
+            for (int i = 0; i < tableTotals.length; i++)
+                tableTotals[i] = new long[]{in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readLong()};
+            int count = in.readInt();
+            List<Payment> recent = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int table = in.readInt();
+                byte type = in.readByte();
+                double amount = PaymentHistory.fromCents(in.readLong());
+                recent.add(new Payment(table, type < 0 ? null : TYPES[type], amount, in.readLong()));
+            }
+            return new PaymentSnapshot(position, typeCents, tableTotals, recent);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package pizzashop.repository;
+
+import pizzashop.model.Payment;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//durable storage behind PaymentRepository
+public interface PaymentStore extends AutoCloseable {
+    //repairs a write torn by a crash; PaymentRepository calls it once, under its lock, before loading.
+    //the read methods never change the store, they just leave out what is not completely written
+    default void recover() {
+    }
+
+    void readAll(Consumer<Payment> consumer);
+
+    //like readAll, but the store may parse on several threads and hold everything parsed at once;
+    //payments still reach the consumer in order, on the calling thread
+    default void readAllParallel(Consumer<Payment> consumer) {
+        readAll(consumer);
+    }
+
+    //every stored payment in order, read lazily with constant memory; close the stream when done
+    Stream<Payment> stream();
+
+    //where the next appended payment goes; positions only grow and stay valid across compact(),
+    //but rewrite() invalidates them
+    long position();
+
+    //the payments stored at or after position, as returned by position() earlier
+    void readFrom(long position, Consumer<Payment> consumer);
+
+    //lets the store drop payments before position once they are covered by a snapshot;
+    //stores that can not drop part of their records keep everything
+    default void compact(long position) {
+    }
+
+    void append(Payment payment);
+
+    void appendAll(List<Payment> payments) throws IOException;
+
+    //drops everything appended at or after position, as returned by position() since the last compact();
+    //takes back an append that can not be acknowledged, see SyncingPaymentStore
+    void truncate(long position) throws IOException;
+
+    void rewrite(List<Payment> payments);
+
+    //forces everything appended or rewritten so far onto the disk, see SyncingPaymentStore
+    void sync() throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,315 @@
+package pizzashop.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//reads comma separated records straight out of one reused byte buffer: numbers and enum names are decoded
+//from the bytes in place, only getString allocates. Blank lines are skipped, "\n" and "\r\n" both end a line
+final class RecordReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELDS = 16;
+    //powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int limit;
+    private int position;
+    private boolean eof;
+    //an unterminated last line may still be being written, so it is not a record
+    private boolean completeLinesOnly;
+    //offset in the input of buffer[0]
+    private long bufferOffset;
+
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fields;
+    //the line has more than MAX_FIELDS fields; reading any field reports it, so decoders skip the line
+    private boolean tooManyFields;
+    private long lineNumber;
+    private long lineOffset;
+
+    static final class MalformedRecordException extends IllegalArgumentException {
+        private final String reason;
+        private final long lineNumber;
+        private final long offset;
+
+        private MalformedRecordException(String reason, long lineNumber, long offset) {
+            super(reason + " at line " + lineNumber + " (byte " + offset + ")");
+            this.reason = reason;
+            this.lineNumber = lineNumber;
+            this.offset = offset;
+        }
+
+        //what is wrong, without the position
+        String getReason() {
+            return reason;
+        }
+
+        long getLineNumber() {
+            return lineNumber;
+        }
+
+        //byte offset of the start of the line
+        long getOffset() {
+            return offset;
+        }
+    }
+
+    RecordReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    RecordReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    //for files other threads may be appending to: stops at the last newline
+    static RecordReader completeLines(InputStream in) {
+        RecordReader reader = new RecordReader(in);
+        reader.completeLinesOnly = true;
+        return reader;
+    }
+
+    //reads the given bytes only, line numbers and offsets count from their start
+    RecordReader(byte[] data, int length) {
+        this.in = null;
+        this.buffer = data;
+        this.limit = length;
+        this.eof = true;
+    }
+
+    //moves to the next non-blank line, false at the end of the input; a last line without newline counts
+    //unless the reader was made by completeLines
+    boolean next() throws IOException {
+        while (true) {
+            int end = findLineEnd();
+            if (end < 0)
+                return false;
+            lineNumber++;
+            lineOffset = bufferOffset + position;
+            int contentEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+            int start = position;
+            position = Math.min(end + 1, limit);
+            if (contentEnd > start) {
+                split(start, contentEnd);
+                return true;
+            }
+        }
+    }
+
+    //index of the newline ending the current line, or limit for an unterminated last line, -1 at the end
+    private int findLineEnd() throws IOException {
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i < limit; i++)
+                if (buffer[i] == '\n')
+                    return i;
+            scanned = limit;
+            if (eof)
+                return position < limit && !completeLinesOnly ? limit : -1;
+            scanned -= fill();
+        }
+    }
+
+    //moves the unread bytes to the front and reads more, growing the buffer only for lines longer than it;
+    //returns how far the unread bytes moved
+    private int fill() throws IOException {
+        int moved = position;
+        int unread = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, unread);
+            bufferOffset += position;
+            position = 0;
+            limit = unread;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0)
+            eof = true;
+        else
+            limit += read;
+        return moved;
+    }
+
+    private void split(int start, int end) {
+        fields = 0;
+        tooManyFields = false;
+        int fieldBegin = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == ',') {
+                if (fields == MAX_FIELDS) {
+                    tooManyFields = true;
+                    return;
+                }
+                fieldStart[fields] = fieldBegin;
+                fieldEnd[fields] = i;
+                fields++;
+                fieldBegin = i + 1;
+            }
+        }
+    }
+
+    int fieldCount() {
+        return fields;
+    }
+
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    long getLineOffset() {
+        return lineOffset;
+    }
+
+    MalformedRecordException malformed(String message) {
+        return new MalformedRecordException(message, lineNumber, lineOffset);
+    }
+
+    private void checkField(int field) {
+        if (tooManyFields)
+            throw malformed("More than " + MAX_FIELDS + " fields");
+        if (field >= fields)
+            throw malformed("Missing field " + (field + 1));
+    }
+
+    String getString(int field) {
+        checkField(field);
+        return new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+    }
+
+    int getInt(int field) {
+        long value = getLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw malformed("Number out of range in field " + (field + 1));
+        return (int) value;
+    }
+
+    //same rules as Long.parseLong: optional sign, digits only
+    long getLong(int field) {
+        checkField(field);
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+'))
+            i++;
+        if (i == end)
+            throw malformed("Not a number in field " + (field + 1));
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw malformed("Not a number in field " + (field + 1));
+            //accumulate negatively so Long.MIN_VALUE fits
+            if (value < (Long.MIN_VALUE + digit) / 10)
+                throw malformed("Number out of range in field " + (field + 1));
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE)
+            throw malformed("Number out of range in field " + (field + 1));
+        return negative ? value : -value;
+    }
+
+    //gives exactly what Double.parseDouble gives: short decimals are decoded in place, since a mantissa below 2^53
+    //scaled by an exact power of ten is correctly rounded; anything else goes through Double.parseDouble
+    double getDouble(int field) {
+        checkField(field);
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        //Double.parseDouble ignores surrounding whitespace
+        while (start < end && buffer[start] <= ' ')
+            start++;
+        while (end > start && buffer[end - 1] <= ' ')
+            end--;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+'))
+            negative = buffer[i++] == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean fast = true;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    fast = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (point)
+                    scale--;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (fast && digits > 0 && i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            int exponentStart = ++i;
+            boolean negativeExponent = i < end && buffer[i] == '-';
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+'))
+                i++;
+            int exponent = 0;
+            for (; i < end && buffer[i] >= '0' && buffer[i] <= '9' && exponent < 1000; i++)
+                exponent = exponent * 10 + (buffer[i] - '0');
+            if (i == exponentStart || i < end)
+                fast = false;
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (fast && digits > 0 && i == end && scale >= -22 && scale <= 22) {
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw malformed("Not a number in field " + (field + 1));
+        }
+    }
+
+    //index of the name the field spells exactly, names are ASCII byte strings
+    int getChoice(int field, byte[][] names) {
+        checkField(field);
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+        for (int n = 0; n < names.length; n++) {
+            byte[] name = names[n];
+            if (name.length != length)
+                continue;
+            int i = 0;
+            while (i < length && buffer[start + i] == name[i])
+                i++;
+            if (i == length)
+                return n;
+        }
+        throw malformed("Unknown value in field " + (field + 1));
+    }
+
+    static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++)
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        return names;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null)
+            in.close();
+    }
+}
@@ -0,0 +1,104 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Logger;
+import pizzashop.metrics.Counter;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.Payment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//writes PaymentRepository snapshots on a background thread and then lets the store compact what they cover;
+//at most one snapshot is in flight, a request arriving meanwhile is refused and the repository retries later
+class SnapshotWriter implements AutoCloseable {
+    private final File file;
+    private final int interval;
+    private final PaymentStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final LatencyHistogram writeLatency = MetricsRegistry.getDefault().histogram("repository.payment.snapshot");
+    private final Counter written = MetricsRegistry.getDefault().counter("repository.payment.snapshots");
+    static final Logger logger = Logger.getLogger(SnapshotWriter.class);
+
+    SnapshotWriter(File file, int interval, PaymentStore store) {
+        if (interval < 1)
+            throw new IllegalArgumentException("Snapshot interval has to be at least 1 payment.");
+        this.file = file;
+        this.interval = interval;
+        this.store = store;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    //payments recorded between two snapshots
+    int getInterval() {
+        return interval;
+    }
+
+    //null when there is no snapshot yet or it can not be read, the whole store is replayed then
+    PaymentSnapshot load() {
+        if (!file.exists())
+            return null;
+        try {
+            return PaymentSnapshot.read(file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable payment snapshot " + file, e);
+            return null;
+        }
+    }
+
+    //state is captured under the repository lock, the snapshot is only built once position is known;
+    //returns false when the previous snapshot is still being written
+    boolean submit(CompletableFuture<Long> position, long[] typeCents, long[][] tableTotals, List<Payment> recent) {
+        if (!busy.compareAndSet(false, true))
+            return false;
+        position.thenAcceptAsync(p -> write(new PaymentSnapshot(p, typeCents, tableTotals, recent)), executor)
+                .whenComplete((ignored, e) -> {
+                    if (e != null)
+                        logger.error("Payment snapshot was not written", e);
+                    busy.set(false);
+                });
+        return true;
+    }
+
+    //the payments it covers are synced before the snapshot replaces the old one,
+    //and the store is compacted only after the snapshot is safely in place
+    void write(PaymentSnapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            store.sync();
+            snapshot.write(file);
+        } catch (IOException e) {
+            logger.error("Could not write payment snapshot " + file, e);
+            return;
+        }
+        store.compact(snapshot.getPosition());
+        writeLatency.recordSince(start);
+        written.increment();
+    }
+
+    //waits for the snapshot in flight
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                logger.warn("Payment snapshot still running at shutdown");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Logger;
+import pizzashop.metrics.Counter;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.Payment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//applies a Durability to another store: appendAll returns only after the sync the mode asks for,
+//so with a GroupCommitWriter in front the payments' futures complete once they are as durable as promised.
+//group sync also runs on a timer, so the last payments before a quiet period do not stay unsynced
+public class SyncingPaymentStore implements PaymentStore {
+    private final PaymentStore store;
+    private final Durability durability;
+    private final ScheduledExecutorService timer;
+    //syncs run one at a time; appends only bump the counter, so they never wait for a sync
+    private final Object syncLock = new Object();
+    private final AtomicInteger unsynced = new AtomicInteger();
+    private final LatencyHistogram syncLatency = MetricsRegistry.getDefault().histogram("repository.payment.sync");
+    private final Counter syncs = MetricsRegistry.getDefault().counter("repository.payment.syncs");
+    static final Logger logger = Logger.getLogger(SyncingPaymentStore.class);
+
+    public SyncingPaymentStore(PaymentStore store, Durability durability) {
+        this.store = store;
+        this.durability = durability;
+        if (durability.getMode() != Durability.Mode.GROUP_SYNC) {
+            this.timer = null;
+            return;
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = durability.getSyncMillis();
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                syncIfUnsynced();
+            } catch (IOException e) {
+                logger.error("Timed payment sync failed", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    @Override
+    public void readAll(Consumer<Payment> consumer) {
+        store.readAll(consumer);
+    }
+
+    @Override
+    public void readAllParallel(Consumer<Payment> consumer) {
+        store.readAllParallel(consumer);
+    }
+
+    @Override
+    public Stream<Payment> stream() {
+        return store.stream();
+    }
+
+    @Override
+    public long position() {
+        return store.position();
+    }
+
+    @Override
+    public void readFrom(long position, Consumer<Payment> consumer) {
+        store.readFrom(position, consumer);
+    }
+
+    @Override
+    public void compact(long position) {
+        store.compact(position);
+    }
+
+    //a failed write or sync is thrown, never just logged: the caller must not treat the payment as stored
+    @Override
+    public void append(Payment payment) {
+        try {
+            appendAll(Collections.singletonList(payment));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //a payment whose sync failed is truncated away again before the failure is thrown, so it does not come back
+    //on the next load and a caller that retries does not store it twice
+    @Override
+    public void appendAll(List<Payment> payments) throws IOException {
+        long before = store.position();
+        store.appendAll(payments);
+        if (unsynced.addAndGet(payments.size()) < durability.getSyncEvery())
+            return;
+        try {
+            syncIfUnsynced();
+        } catch (IOException e) {
+            try {
+                store.truncate(before);
+                unsynced.addAndGet(-payments.size());
+            } catch (IOException | RuntimeException truncateFailure) {
+                logger.error("Payments whose sync failed could not be taken back, they may be loaded again", truncateFailure);
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void truncate(long position) throws IOException {
+        store.truncate(position);
+    }
+
+    @Override
+    public void rewrite(List<Payment> payments) {
+        store.rewrite(payments);
+        if (durability.getMode() == Durability.Mode.OS_BUFFERED)
+            return;
+        try {
+            sync();
+        } catch (IOException e) {
+            logger.error(e);
+        }
+    }
+
+    private void syncIfUnsynced() throws IOException {
+        synchronized (syncLock) {
+            if (unsynced.get() > 0)
+                sync();
+        }
+    }
+
+    //payments appended while the sync runs may be covered too, they are synced again to be safe
+    @Override
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            int covered = unsynced.get();
+            long start = System.nanoTime();
+            store.sync();
+            syncLatency.recordSince(start);
+            syncs.increment();
+            unsynced.addAndGet(-covered);
+        }
+    }
+
+    //whatever group sync has not covered yet is synced here; OS-buffered payments are left to the operating system
+    @Override
+    public void close() {
+        if (timer != null)
+            timer.shutdownNow();
+        if (durability.getMode() != Durability.Mode.OS_BUFFERED) {
+            try {
+                syncIfUnsynced();
+            } catch (IOException e) {
+                logger.error(e);
+            }
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,148 @@
+package pizzashop.service;
+
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.OrderLine;
+import pizzashop.model.TicketStatus;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+//bounded, thread-safe set of the tickets the kitchen is working on, indexed by id and by status;
+//subscribers are pushed every change instead of polling, so they should only hand the snapshot off
+public class KitchenOrderQueue {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private long nextId = 1;
+    //placement order is kept by the linked maps
+    private final Map<Long, KitchenTicket> byId = new LinkedHashMap<>();
+    private final Map<TicketStatus, Map<Long, KitchenTicket>> byStatus = new EnumMap<>(TicketStatus.class);
+    private final List<Consumer<List<KitchenTicket>>> subscribers = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram publishLatency = MetricsRegistry.getDefault().histogram("kitchen.update");
+
+    public KitchenOrderQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public KitchenOrderQueue(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Kitchen queue capacity has to be at least 1.");
+        this.capacity = capacity;
+        for (TicketStatus status : TicketStatus.values())
+            byStatus.put(status, new LinkedHashMap<>());
+        //held weakly by the registry, so queues that are dropped do not stay reachable through the gauge
+        MetricsRegistry.getDefault().gauge("kitchen.tickets", byId, tickets -> {
+            synchronized (tickets) {
+                return tickets.size();
+            }
+        });
+    }
+
+    //returns null when the kitchen already holds capacity tickets
+    public KitchenTicket place(int table, List<OrderLine> lines) {
+        synchronized (byId) {
+            if (byId.size() >= capacity)
+                return null;
+            KitchenTicket ticket = new KitchenTicket(nextId++, table, lines, System.currentTimeMillis());
+            put(ticket);
+            publish();
+            return ticket;
+        }
+    }
+
+    public KitchenTicket startCooking(long id) {
+        return advance(id, TicketStatus.COOKING);
+    }
+
+    public KitchenTicket markReady(long id) {
+        return advance(id, TicketStatus.READY);
+    }
+
+    //a served ticket leaves the kitchen
+    public KitchenTicket markServed(long id) {
+        synchronized (byId) {
+            KitchenTicket ticket = byId.get(id);
+            if (ticket == null || ticket.getStatus() != TicketStatus.READY)
+                return null;
+            byId.remove(id);
+            byStatus.get(TicketStatus.READY).remove(id);
+            publish();
+            return ticket.advance(TicketStatus.SERVED, System.currentTimeMillis());
+        }
+    }
+
+    //removes a ticket that will never be served, e.g. because the table left or ordered again;
+    //returns null when there is no such ticket
+    public KitchenTicket cancel(long id) {
+        synchronized (byId) {
+            KitchenTicket ticket = byId.remove(id);
+            if (ticket == null)
+                return null;
+            byStatus.get(ticket.getStatus()).remove(id);
+            publish();
+            return ticket;
+        }
+    }
+
+    //returns null when there is no such ticket or it is not in the status right before next
+    private KitchenTicket advance(long id, TicketStatus next) {
+        synchronized (byId) {
+            KitchenTicket ticket = byId.get(id);
+            if (ticket == null || ticket.getStatus().ordinal() != next.ordinal() - 1)
+                return null;
+            byStatus.get(ticket.getStatus()).remove(id);
+            KitchenTicket advanced = ticket.advance(next, System.currentTimeMillis());
+            put(advanced);
+            publish();
+            return advanced;
+        }
+    }
+
+    private void put(KitchenTicket ticket) {
+        byId.put(ticket.getId(), ticket);
+        byStatus.get(ticket.getStatus()).put(ticket.getId(), ticket);
+    }
+
+    public KitchenTicket getTicket(long id) {
+        synchronized (byId) {
+            return byId.get(id);
+        }
+    }
+
+    public List<KitchenTicket> getTickets(TicketStatus status) {
+        synchronized (byId) {
+            return Collections.unmodifiableList(new ArrayList<>(byStatus.get(status).values()));
+        }
+    }
+
+    public List<KitchenTicket> getTickets() {
+        synchronized (byId) {
+            return snapshot();
+        }
+    }
+
+    //the subscriber gets the current tickets right away and then every change; the returned handle unsubscribes
+    public Runnable subscribe(Consumer<List<KitchenTicket>> subscriber) {
+        synchronized (byId) {
+            subscribers.add(subscriber);
+            subscriber.accept(snapshot());
+        }
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private List<KitchenTicket> snapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(byId.values()));
+    }
+
+    //called under the lock so every subscriber sees the changes in order
+    private void publish() {
+        long start = System.nanoTime();
+        List<KitchenTicket> snapshot = snapshot();
+        for (Consumer<List<KitchenTicket>> subscriber : subscribers)
+            subscriber.accept(snapshot);
+        publishLatency.recordSince(start);
+    }
+}
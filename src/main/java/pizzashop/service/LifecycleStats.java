@@ -0,0 +1,94 @@
+package pizzashop.service;
+
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.OrderLine;
+import pizzashop.model.TicketStatus;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+//streaming percentiles of how long paid orders spent in each stage, overall, per table and per menu item
+public class LifecycleStats {
+    public enum Stage {
+        PLACE_TO_COOK, COOK_TO_READY, READY_TO_SERVE, SERVE_TO_PAY, PLACE_TO_PAY;
+
+        String metricName() {
+            return "order." + name().toLowerCase();
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] overall = new LatencyHistogram[STAGES.length];
+    private final Map<Integer, LatencyHistogram[]> byTable = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram[]> byItem = new ConcurrentSkipListMap<>();
+
+    public LifecycleStats() {
+        this(MetricsRegistry.getDefault());
+    }
+
+    //the overall histograms are also published to the registry
+    public LifecycleStats(MetricsRegistry registry) {
+        for (Stage stage : STAGES)
+            overall[stage.ordinal()] = registry.histogram(stage.metricName());
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+        return histograms;
+    }
+
+    //served is the ticket as it left the kitchen, paidNanos the System.nanoTime() of the payment
+    public void record(KitchenTicket served, long paidNanos) {
+        long[] durations = new long[STAGES.length];
+        durations[Stage.PLACE_TO_COOK.ordinal()] = served.getElapsedNanos(TicketStatus.PLACED, TicketStatus.COOKING);
+        durations[Stage.COOK_TO_READY.ordinal()] = served.getElapsedNanos(TicketStatus.COOKING, TicketStatus.READY);
+        durations[Stage.READY_TO_SERVE.ordinal()] = served.getElapsedNanos(TicketStatus.READY, TicketStatus.SERVED);
+        durations[Stage.SERVE_TO_PAY.ordinal()] = paidNanos - served.getNanos(TicketStatus.SERVED);
+        durations[Stage.PLACE_TO_PAY.ordinal()] = paidNanos - served.getNanos(TicketStatus.PLACED);
+
+        record(overall, durations);
+        record(byTable.computeIfAbsent(served.getTable(), t -> newHistograms()), durations);
+        for (OrderLine line : served.getLines())
+            record(byItem.computeIfAbsent(line.getMenuItem(), item -> newHistograms()), durations);
+    }
+
+    private static void record(LatencyHistogram[] histograms, long[] durations) {
+        for (int i = 0; i < durations.length; i++)
+            histograms[i].record(durations[i]);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return overall[stage.ordinal()];
+    }
+
+    //null when no order of the table has been paid yet
+    public LatencyHistogram getForTable(int table, Stage stage) {
+        LatencyHistogram[] histograms = byTable.get(table);
+        return histograms == null ? null : histograms[stage.ordinal()];
+    }
+
+    //null when no paid order had the item
+    public LatencyHistogram getForItem(String menuItem, Stage stage) {
+        LatencyHistogram[] histograms = byItem.get(menuItem);
+        return histograms == null ? null : histograms[stage.ordinal()];
+    }
+
+    public void writeReport(PrintWriter out) {
+        write(out, "all", overall);
+        byTable.forEach((table, histograms) -> write(out, "table " + table, histograms));
+        byItem.forEach((item, histograms) -> write(out, "item " + item, histograms));
+        out.flush();
+    }
+
+    private static void write(PrintWriter out, String key, LatencyHistogram[] histograms) {
+        for (Stage stage : STAGES)
+            out.println(key + " " + stage.name().toLowerCase() + " " + histograms[stage.ordinal()].summary(TimeUnit.MILLISECONDS));
+    }
+}
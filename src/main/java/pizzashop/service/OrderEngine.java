@@ -0,0 +1,186 @@
+package pizzashop.service;
+
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.MenuCatalog;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+import pizzashop.model.TableOrder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+//the whole order lifecycle without any UI: open table, add items, place, cook, ready, serve, pay;
+//every method is thread-safe, the JavaFX controllers are only clients of it
+public class OrderEngine {
+    private final PizzaService service;
+    private final TableRegistry<TableState> tables;
+
+    private static final class TableState {
+        private TableOrder order;
+        private KitchenTicket ticket;
+        //the last ticket served, its stage times are recorded when the table pays
+        private KitchenTicket served;
+
+        private TableState(TableOrder order) {
+            this.order = order;
+        }
+    }
+
+    //serves the tables 1..service.getTableCount() as configured when the engine is created
+    public OrderEngine(PizzaService service) {
+        this.service = service;
+        this.tables = new TableRegistry<>(service.getTableCount(), t -> new TableState(new TableOrder(service.getMenuCatalog())));
+    }
+
+    public int getTableCount() {
+        return tables.getTableCount();
+    }
+
+    public PizzaService getService() {
+        return service;
+    }
+
+    public MenuCatalog getMenuCatalog() {
+        return service.getMenuCatalog();
+    }
+
+    //returns the table's current order, starting an empty one the first time
+    public TableOrder openTable(int table) {
+        TableState state = tables.open(table);
+        synchronized (state) {
+            return state.order;
+        }
+    }
+
+    //frees everything kept for the table, including a ticket the kitchen is still working on
+    public void closeTable(int table) {
+        TableState state = tables.close(table);
+        if (state == null)
+            return;
+        synchronized (state) {
+            cancelTicket(state);
+        }
+    }
+
+    //called under the table's lock
+    private void cancelTicket(TableState state) {
+        if (state.ticket != null) {
+            service.getKitchenQueue().cancel(state.ticket.getId());
+            state.ticket = null;
+        }
+    }
+
+    private TableState state(int table) {
+        TableState state = tables.get(table);
+        if (state == null)
+            throw new IllegalStateException("Table " + table + " is not open.");
+        return state;
+    }
+
+    public TableOrder getOrder(int table) {
+        TableState state = state(table);
+        synchronized (state) {
+            return state.order;
+        }
+    }
+
+    public void setQuantity(int table, int item, int quantity) {
+        TableState state = state(table);
+        synchronized (state) {
+            state.order.setQuantity(item, quantity);
+        }
+    }
+
+    public void addItem(int table, int item, int quantity) {
+        TableState state = state(table);
+        synchronized (state) {
+            state.order.setQuantity(item, state.order.getQuantity(item) + quantity);
+        }
+    }
+
+    public void clearOrder(int table) {
+        TableState state = state(table);
+        synchronized (state) {
+            state.order.clear();
+        }
+    }
+
+    //moves the table's order onto the current menu version, returns the order in use afterwards
+    public TableOrder refreshMenu(int table) {
+        TableState state = state(table);
+        MenuCatalog catalog = service.getMenuCatalog();
+        synchronized (state) {
+            if (state.order.getCatalog() != catalog)
+                state.order = state.order.withCatalog(catalog);
+            return state.order;
+        }
+    }
+
+    //returns null when the kitchen queue is full; the new ticket holds the whole order, so it replaces
+    //a ticket the table placed before and has not been served yet
+    public KitchenTicket placeOrder(int table) {
+        TableState state = state(table);
+        synchronized (state) {
+            KitchenTicket ticket = service.placeOrder(table, state.order.getOrderLines());
+            if (ticket != null) {
+                cancelTicket(state);
+                state.ticket = ticket;
+            }
+            return ticket;
+        }
+    }
+
+    public KitchenTicket getTicket(int table) {
+        TableState state = state(table);
+        synchronized (state) {
+            return state.ticket;
+        }
+    }
+
+    //the subscriber gets every change of the kitchen tickets, see KitchenOrderQueue.subscribe
+    public Runnable subscribeKitchen(Consumer<List<KitchenTicket>> subscriber) {
+        return service.getKitchenQueue().subscribe(subscriber);
+    }
+
+    //returns null when the ticket is not waiting to be cooked
+    public KitchenTicket cook(long ticketId) {
+        return service.getKitchenQueue().startCooking(ticketId);
+    }
+
+    //returns null when the ticket is not cooking
+    public KitchenTicket ready(long ticketId) {
+        return service.getKitchenQueue().markReady(ticketId);
+    }
+
+    //returns null when the table's ticket is not ready yet
+    public KitchenTicket serve(int table) {
+        TableState state = state(table);
+        synchronized (state) {
+            if (state.ticket == null)
+                return null;
+            KitchenTicket served = service.serveOrder(state.ticket.getId());
+            if (served != null) {
+                state.ticket = null;
+                state.served = served;
+            }
+            return served;
+        }
+    }
+
+    //records the order total as a payment and starts a new, empty order for the table;
+    //a ticket that was never served leaves the kitchen
+    public CompletableFuture<Payment> pay(int table, PaymentType type) {
+        TableState state = state(table);
+        synchronized (state) {
+            CompletableFuture<Payment> payment = service.addPaymentAsync(table, type, state.order.getTotalAmount());
+            cancelTicket(state);
+            if (state.served != null) {
+                service.getLifecycleStats().record(state.served, System.nanoTime());
+                state.served = null;
+            }
+            state.order = new TableOrder(service.getMenuCatalog());
+            return payment;
+        }
+    }
+}
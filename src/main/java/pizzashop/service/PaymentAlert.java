@@ -8,13 +8,13 @@ import pizzashop.model.PaymentType;
 import java.util.Optional;
 
 public class PaymentAlert implements PaymentOperation {
-    private PizzaService service;
+    private OrderEngine engine;
     static final Logger logger = Logger.getLogger(PaymentAlert.class);
 
     private static final String BAR = "--------------------------";
 
-    public PaymentAlert(PizzaService service) {
-        this.service = service;
+    public PaymentAlert(OrderEngine engine) {
+        this.engine = engine;
     }
 
     @Override
@@ -40,6 +40,13 @@ public class PaymentAlert implements PaymentOperation {
         logger.info(BAR);
     }
 
+    private void recordPayment(int tableNumber, PaymentType type) {
+        engine.pay(tableNumber, type).whenComplete((payment, error) -> {
+            if (error != null)
+                logger.error("Payment for table " + tableNumber + " could not be saved.", error);
+        });
+    }
+
     public void showPaymentAlert(int tableNumber, double totalAmount) {
         Alert paymentAlert = new Alert(Alert.AlertType.CONFIRMATION);
         paymentAlert.setTitle("Payment for Table " + tableNumber);
@@ -54,10 +61,10 @@ public class PaymentAlert implements PaymentOperation {
             cancelPayment();
         else if (result.get() == cardPayment) {
             cardPayment();
-            service.addPayment(tableNumber, PaymentType.CARD, totalAmount);
+            recordPayment(tableNumber, PaymentType.CARD);
         } else if (result.get() == cashPayment) {
             cashPayment();
-            service.addPayment(tableNumber, PaymentType.CASH, totalAmount);
+            recordPayment(tableNumber, PaymentType.CASH);
         } else if (result.get() == cancel) {
             cancelPayment();
         } else {
@@ -1,17 +1,39 @@
 package pizzashop.service;
 
+import pizzashop.metrics.Counter;
+import pizzashop.metrics.LatencyHistogram;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.MenuCatalog;
 import pizzashop.model.MenuDataModel;
+import pizzashop.model.OrderLine;
 import pizzashop.model.Payment;
+import pizzashop.model.PaymentAggregate;
 import pizzashop.model.PaymentType;
+import pizzashop.model.TableAggregate;
 import pizzashop.repository.MenuRepository;
 import pizzashop.repository.PaymentRepository;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class PizzaService {
+    public static final int DEFAULT_TABLE_COUNT = 8;
 
     private MenuRepository menuRepo;
     private PaymentRepository payRepo;
+    private final KitchenOrderQueue kitchenQueue = new KitchenOrderQueue();
+    private final LifecycleStats lifecycleStats = new LifecycleStats();
+    private int tableCount = DEFAULT_TABLE_COUNT;
+    private final LatencyHistogram placeOrderLatency = MetricsRegistry.getDefault().histogram("service.order.place");
+    private final Counter ordersRejected = MetricsRegistry.getDefault().counter("service.order.kitchen_full");
+    private final LatencyHistogram addPaymentLatency = MetricsRegistry.getDefault().histogram("service.payment.add");
+    private final Counter paymentsRejected = MetricsRegistry.getDefault().counter("service.payment.rejected");
 
     public PizzaService(MenuRepository menuRepo, PaymentRepository payRepo) {
         this.menuRepo = menuRepo;
@@ -22,31 +44,128 @@ public class PizzaService {
         return menuRepo.getMenu();
     }
 
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public void setTableCount(int tableCount) {
+        if (tableCount < 1)
+            throw new IllegalArgumentException("There has to be at least one table.");
+        this.tableCount = tableCount;
+    }
+
+    public MenuCatalog getMenuCatalog() {
+        return menuRepo.getCatalog();
+    }
+
+    public KitchenOrderQueue getKitchenQueue() {
+        return kitchenQueue;
+    }
+
+    public LifecycleStats getLifecycleStats() {
+        return lifecycleStats;
+    }
+
+    //returns null when the kitchen queue is full
+    public KitchenTicket placeOrder(int table, List<OrderLine> lines) {
+        long start = System.nanoTime();
+        KitchenTicket ticket = kitchenQueue.place(table, lines);
+        placeOrderLatency.recordSince(start);
+        if (ticket == null)
+            ordersRejected.increment();
+        return ticket;
+    }
+
+    //returns null unless the ticket is ready
+    public KitchenTicket serveOrder(long ticketId) {
+        return kitchenQueue.markServed(ticketId);
+    }
+
     public List<Payment> getPayments() {
         return payRepo.getAll();
     }
 
+    //the whole persisted history in constant memory, for reports that go past the resident payments
+    public Stream<Payment> streamPayments() {
+        return payRepo.stream();
+    }
+
     public void addPayment(int table, PaymentType type, double amount) {
-        if (table < 1 || table > 8)
-            throw new IllegalArgumentException("Table codes have to be between 1 and 8 inclusive.");
+        long start = System.nanoTime();
+        payRepo.add(createPayment(table, type, amount));
+        addPaymentLatency.recordSince(start);
+    }
+
+    //returns without waiting for the disk, the future completes once the payment is persisted and recorded
+    public CompletableFuture<Payment> addPaymentAsync(int table, PaymentType type, double amount) {
+        long start = System.nanoTime();
+        CompletableFuture<Payment> payment = payRepo.addAsync(createPayment(table, type, amount));
+        addPaymentLatency.recordSince(start);
+        return payment;
+    }
 
-        if (amount <= 0)
+    private Payment createPayment(int table, PaymentType type, double amount) {
+        if (table < 1 || table > tableCount) {
+            paymentsRejected.increment();
+            throw new IllegalArgumentException("Table codes have to be between 1 and " + tableCount + " inclusive.");
+        }
+
+        if (amount <= 0) {
+            paymentsRejected.increment();
             throw new IllegalArgumentException("Payment mount have to be greater than or equal to 1.");
+        }
 
-        Payment payment = new Payment(table, type, amount);
-        payRepo.add(payment);
+        return new Payment(table, type, amount, System.currentTimeMillis());
     }
 
     public double getTotalAmount(PaymentType type) {
-        double total = 0.0f;
-        List<Payment> l = getPayments();
-        if ((l == null) || l.isEmpty())
-            return total;
-        for (Payment p : l) {
-            if (p.getType().equals(type))
-                total += p.getAmount();
-        }
-        return total;
+        return payRepo.getTotalAmount(type);
+    }
+
+    public List<Payment> getPaymentsForTable(int table) {
+        return payRepo.getByTable(table);
+    }
+
+    //count, revenue, average, smallest and largest payment of the table
+    public TableAggregate getTableStats(int table) {
+        return payRepo.getTableAggregate(table);
+    }
+
+    //one entry per table that has been paid at
+    public List<TableAggregate> getTableStats() {
+        return payRepo.getTableAggregates();
+    }
+
+    //payments with from <= timestamp < to, in epoch millis
+    public List<Payment> getPaymentsBetween(long from, long to) {
+        return payRepo.getBetween(from, to);
+    }
+
+    //one aggregate per local hour of the day, 23 or 25 of them on daylight saving changes
+    public List<PaymentAggregate> getTakingsPerHour(LocalDate day) {
+        ZonedDateTime end = day.plusDays(1).atStartOfDay(ZoneId.systemDefault());
+        List<Long> boundaries = new ArrayList<>();
+        for (ZonedDateTime hour = day.atStartOfDay(ZoneId.systemDefault()); hour.isBefore(end); hour = hour.plusHours(1))
+            boundaries.add(hour.toInstant().toEpochMilli());
+        boundaries.add(end.toInstant().toEpochMilli());
+        return payRepo.aggregate(toArray(boundaries));
+    }
+
+    //one aggregate per local day from first to last inclusive
+    public List<PaymentAggregate> getTakingsPerDay(LocalDate first, LocalDate last) {
+        if (last.isBefore(first))
+            throw new IllegalArgumentException("The last day can not be before the first one.");
+        List<Long> boundaries = new ArrayList<>();
+        for (LocalDate day = first; !day.isAfter(last.plusDays(1)); day = day.plusDays(1))
+            boundaries.add(day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return payRepo.aggregate(toArray(boundaries));
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = values.get(i);
+        return array;
     }
 
 }
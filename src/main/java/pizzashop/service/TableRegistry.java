@@ -0,0 +1,52 @@
+package pizzashop.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+//per-table state for tables 1..tableCount, created on first use and dropped when the table closes
+public class TableRegistry<T> {
+    private final int tableCount;
+    private final IntFunction<T> factory;
+    private final Map<Integer, T> open = new ConcurrentHashMap<>();
+
+    public TableRegistry(int tableCount, IntFunction<T> factory) {
+        if (tableCount < 1)
+            throw new IllegalArgumentException("There has to be at least one table.");
+        this.tableCount = tableCount;
+        this.factory = factory;
+    }
+
+    public int getTableCount() {
+        return tableCount;
+    }
+
+    public boolean isValid(int table) {
+        return table >= 1 && table <= tableCount;
+    }
+
+    public void validate(int table) {
+        if (!isValid(table))
+            throw new IllegalArgumentException("Table codes have to be between 1 and " + tableCount + " inclusive.");
+    }
+
+    public T open(int table) {
+        validate(table);
+        return open.computeIfAbsent(table, factory::apply);
+    }
+
+    //null when the table is not open
+    public T get(int table) {
+        return open.get(table);
+    }
+
+    public T close(int table) {
+        return open.remove(table);
+    }
+
+    public Set<Integer> getOpenTables() {
+        return new TreeSet<>(open.keySet());
+    }
+}
@@ -0,0 +1,261 @@
+package pizzashop.tools;
+
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.MenuCatalog;
+import pizzashop.model.PaymentType;
+import pizzashop.repository.Durability;
+import pizzashop.repository.MenuRepository;
+import pizzashop.repository.PaymentJournal;
+import pizzashop.repository.PaymentRepository;
+import pizzashop.repository.SyncingPaymentStore;
+import pizzashop.service.OrderEngine;
+import pizzashop.service.PizzaService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//simulates N tables ordering, the kitchen cooking and the tables paying, all through the OrderEngine;
+//mvn -Pload-generator compile exec:java -Dexec.args="--tables 8 --rate 600 --duration 30"
+@java.lang.SuppressWarnings("java:S106")
+public class LoadGenerator {
+    private final int tables;
+    private final double ordersPerMinute;
+    private final long durationMillis;
+    private final int cooks;
+    private final long cookMillis;
+    private final int maxItemsPerOrder;
+    private final double[] menuMix;
+    private final long seed;
+
+    private final OrderEngine engine;
+    private final BlockingQueue<Long> kitchenWork = new LinkedBlockingQueue<>();
+    private final Map<Long, CompletableFuture<KitchenTicket>> readyTickets = new ConcurrentHashMap<>();
+    private final Latencies placeLatency = new Latencies();
+    private final Latencies kitchenLatency = new Latencies();
+    private final Latencies payLatency = new Latencies();
+    private final Latencies cycleLatency = new Latencies();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LoadGenerator(OrderEngine engine, int tables, double ordersPerMinute, long durationMillis, int cooks,
+                         long cookMillis, int maxItemsPerOrder, double[] menuMix, long seed) {
+        this.engine = engine;
+        this.tables = tables;
+        this.ordersPerMinute = ordersPerMinute;
+        this.durationMillis = durationMillis;
+        this.cooks = cooks;
+        this.cookMillis = cookMillis;
+        this.maxItemsPerOrder = maxItemsPerOrder;
+        this.menuMix = menuMix;
+        this.seed = seed;
+    }
+
+    //collects latencies in nanoseconds, percentiles are computed once at the end of the run
+    static final class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void record(long nanos) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        synchronized String report() {
+            if (size == 0)
+                return "no samples";
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return String.format("n=%d p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms", size,
+                    millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99), sorted[size - 1] / 1e6);
+        }
+
+        private static double millis(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+
+    public void run() throws InterruptedException {
+        ExecutorService tableThreads = Executors.newFixedThreadPool(tables);
+        ExecutorService cookThreads = Executors.newFixedThreadPool(cooks);
+        long deadline = System.currentTimeMillis() + durationMillis;
+        for (int i = 0; i < cooks; i++)
+            cookThreads.execute(this::cook);
+        for (int table = 1; table <= tables; table++) {
+            int tableNumber = table;
+            tableThreads.execute(() -> serveTable(tableNumber, deadline, new Random(seed + tableNumber)));
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long maxHeap = 0;
+        long start = System.nanoTime();
+        tableThreads.shutdown();
+        while (!tableThreads.awaitTermination(1, TimeUnit.SECONDS)) {
+            maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+            System.out.printf("%6.1fs  %d orders paid%n", (System.nanoTime() - start) / 1e9, completed.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+        cookThreads.shutdownNow();
+
+        double seconds = elapsed / 1e9;
+        System.out.println("--------------------------");
+        System.out.printf("tables=%d rate=%.1f orders/min/table cooks=%d cook time=%dms duration=%.1fs%n",
+                tables, ordersPerMinute, cooks, cookMillis, seconds);
+        System.out.printf("orders paid: %d (%.1f/s, %.0f/min), kitchen full: %d, failed: %d%n",
+                completed.get(), completed.get() / seconds, completed.get() / seconds * 60, rejected.get(), failed.get());
+        System.out.println("place order:     " + placeLatency.report());
+        System.out.println("place -> ready:  " + kitchenLatency.report());
+        System.out.println("pay:             " + payLatency.report());
+        System.out.println("whole order:     " + cycleLatency.report());
+        System.out.printf("heap used: max %.1f MiB, end %.1f MiB%n", maxHeap / 1048576.0,
+                memory.getHeapMemoryUsage().getUsed() / 1048576.0);
+        System.out.println("--------------------------");
+        PrintWriter report = new PrintWriter(System.out);
+        engine.getService().getLifecycleStats().writeReport(report);
+        System.out.println("--------------------------");
+    }
+
+    private void serveTable(int table, long deadline, Random random) {
+        double meanGapMillis = 60_000 / ordersPerMinute;
+        engine.openTable(table);
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                long gap = (long) (-Math.log(1 - random.nextDouble()) * meanGapMillis);
+                if (gap > 0)
+                    Thread.sleep(Math.min(gap, Math.max(deadline - System.currentTimeMillis(), 0)));
+                if (System.currentTimeMillis() >= deadline)
+                    break;
+                order(table, random);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.out.println("Table " + table + " stopped: " + e);
+        } finally {
+            engine.closeTable(table);
+        }
+    }
+
+    private void order(int table, Random random) throws InterruptedException {
+        MenuCatalog catalog = engine.refreshMenu(table).getCatalog();
+        int items = 1 + random.nextInt(maxItemsPerOrder);
+        for (int i = 0; i < items; i++)
+            engine.addItem(table, pick(catalog, random), 1);
+
+        long placed = System.nanoTime();
+        KitchenTicket ticket = engine.placeOrder(table);
+        placeLatency.record(System.nanoTime() - placed);
+        if (ticket == null) {
+            rejected.incrementAndGet();
+            engine.clearOrder(table);
+            return;
+        }
+        CompletableFuture<KitchenTicket> ready = new CompletableFuture<>();
+        readyTickets.put(ticket.getId(), ready);
+        kitchenWork.put(ticket.getId());
+        try {
+            ready.get();
+        } catch (ExecutionException e) {
+            failed.incrementAndGet();
+            return;
+        }
+        kitchenLatency.record(System.nanoTime() - placed);
+        engine.serve(table);
+
+        long paying = System.nanoTime();
+        engine.pay(table, random.nextBoolean() ? PaymentType.CASH : PaymentType.CARD).join();
+        long paid = System.nanoTime();
+        payLatency.record(paid - paying);
+        cycleLatency.record(paid - placed);
+        completed.incrementAndGet();
+    }
+
+    private int pick(MenuCatalog catalog, Random random) {
+        if (menuMix == null || menuMix.length == 0)
+            return random.nextInt(catalog.size());
+        double total = 0;
+        for (int i = 0; i < catalog.size() && i < menuMix.length; i++)
+            total += menuMix[i];
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < catalog.size() && i < menuMix.length; i++) {
+            r -= menuMix[i];
+            if (r < 0)
+                return i;
+        }
+        return 0;
+    }
+
+    private void cook() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long id = kitchenWork.take();
+                engine.cook(id);
+                if (cookMillis > 0)
+                    Thread.sleep(cookMillis);
+                KitchenTicket ready = engine.ready(id);
+                CompletableFuture<KitchenTicket> waiting = readyTickets.remove(id);
+                if (ready != null)
+                    waiting.complete(ready);
+                else
+                    waiting.completeExceptionally(new IllegalStateException("Ticket " + id + " could not be made ready."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double[] parseMix(String mix) {
+        String[] weights = mix.split(",");
+        double[] parsed = new double[weights.length];
+        for (int i = 0; i < weights.length; i++)
+            parsed[i] = Double.parseDouble(weights[i].trim());
+        return parsed;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2)
+            options.put(args[i], args[i + 1]);
+        if (args.length % 2 != 0 || options.containsKey("--help")) {
+            System.out.println("Usage: LoadGenerator [--tables 8] [--rate 60 (orders/min/table)] [--duration 30 (s)]");
+            System.out.println("       [--cooks 2] [--cook-ms 0] [--items 3] [--mix w1,w2,...] [--seed 1] [--payments file]");
+            System.out.println("       [--durability buffered|sync|group|group:<payments>:<ms>]");
+            return;
+        }
+        File payments;
+        if (options.containsKey("--payments")) {
+            payments = new File(options.get("--payments"));
+        } else {
+            payments = File.createTempFile("loadgen-payments", ".txt");
+            payments.deleteOnExit();
+        }
+        if (!payments.exists() && !payments.createNewFile())
+            throw new IOException("Could not create " + payments);
+
+        int tables = Integer.parseInt(options.getOrDefault("--tables", "8"));
+        Durability durability = Durability.parse(options.getOrDefault("--durability", "buffered"));
+        try (PaymentRepository payRepo = new PaymentRepository(new SyncingPaymentStore(new PaymentJournal(payments), durability), 64, 5)) {
+            PizzaService service = new PizzaService(new MenuRepository(), payRepo);
+            service.setTableCount(tables);
+            OrderEngine engine = new OrderEngine(service);
+            new LoadGenerator(engine, tables,
+                    Double.parseDouble(options.getOrDefault("--rate", "60")),
+                    Long.parseLong(options.getOrDefault("--duration", "30")) * 1000,
+                    Integer.parseInt(options.getOrDefault("--cooks", "2")),
+                    Long.parseLong(options.getOrDefault("--cook-ms", "0")),
+                    Integer.parseInt(options.getOrDefault("--items", "3")),
+                    options.containsKey("--mix") ? parseMix(options.get("--mix")) : null,
+                    Long.parseLong(options.getOrDefault("--seed", "1"))).run();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pizzashop.benchmark;
+
+import pizzashop.model.PaymentType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    //a payments file in the journal format with the given number of random payments
+    static File paymentHistory(int size) throws IOException {
+        File file = File.createTempFile("payments-" + size + "-", ".txt");
+        file.deleteOnExit();
+        Random random = new Random(size);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < size; i++) {
+                PaymentType type = random.nextBoolean() ? PaymentType.CASH : PaymentType.CARD;
+                bw.write((random.nextInt(8) + 1) + "," + type + "," + (1 + random.nextInt(20000) / 100.0));
+                bw.newLine();
+            }
+        }
+        return file;
+    }
+
+    //a menu file with the given number of pizzas
+    static File menu(int size) throws IOException {
+        File file = File.createTempFile("menu-" + size + "-", ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < size; i++) {
+                bw.write("Pizza" + i + "," + (5 + i % 20) + ".50");
+                bw.newLine();
+            }
+        }
+        return file;
+    }
+}
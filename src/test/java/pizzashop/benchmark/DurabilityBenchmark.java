@@ -0,0 +1,90 @@
+package pizzashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+import pizzashop.repository.Durability;
+import pizzashop.repository.MappedPaymentStore;
+import pizzashop.repository.PaymentJournal;
+import pizzashop.repository.PaymentRepository;
+import pizzashop.repository.PaymentStore;
+import pizzashop.repository.SyncingPaymentStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//payments per second that reach the disk as each durability mode promises; a bounded window keeps memory flat.
+//a short run (3 x 3 s) in a Linux container, ops/s, error bars are wide:
+//
+//  mode       add journal   add mapped   addGroupCommit journal   addGroupCommit mapped
+//  sync             8.8k        13.8k                   70k                    106k
+//  group             92k         486k                  130k                    177k
+//  buffered         135k         2.5M                  180k                    248k
+//
+//syncing every write costs an order of magnitude on its own, sixteen tables behind group commit win most of it back
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    @Param({"sync", "group", "buffered"})
+    String durability;
+
+    @Param({"journal", "mapped"})
+    String store;
+
+    private File directory;
+    private PaymentRepository direct;
+    private PaymentRepository groupCommit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("durability-").toFile();
+        direct = new PaymentRepository(open("direct"), 1_000);
+        //no linger: a batch is whatever queued up during the previous write and sync, so the sync cost shows
+        groupCommit = new PaymentRepository(open("group-commit"), 1_000, 64, 0);
+    }
+
+    private PaymentStore open(String name) throws IOException {
+        File location = new File(directory, name);
+        PaymentStore opened;
+        if (store.equals("mapped")) {
+            opened = new MappedPaymentStore(location);
+        } else {
+            if (!location.createNewFile())
+                throw new IOException("Could not create " + location);
+            opened = new PaymentJournal(location);
+        }
+        return new SyncingPaymentStore(opened, Durability.parse(durability));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        direct.close();
+        groupCommit.close();
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    //one store write per payment
+    @Benchmark
+    public void add() {
+        direct.add(new Payment(3, PaymentType.CARD, 12.5, System.currentTimeMillis()));
+    }
+
+    //sixteen tables paying at once, their payments share batches and syncs
+    @Benchmark
+    @Threads(16)
+    public void addGroupCommit() {
+        groupCommit.add(new Payment(3, PaymentType.CARD, 12.5, System.currentTimeMillis()));
+    }
+}
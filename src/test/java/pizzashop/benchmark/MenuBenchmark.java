@@ -0,0 +1,50 @@
+package pizzashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pizzashop.model.MenuCatalog;
+import pizzashop.model.MenuDataModel;
+import pizzashop.model.TableOrder;
+import pizzashop.repository.MenuRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MenuBenchmark {
+
+    @Param({"10", "1000"})
+    int menuSize;
+
+    private MenuRepository menuRepository;
+    private TableOrder order;
+
+    //getMenu and getCatalog read a generated menu file of menuSize pizzas
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        menuRepository = new MenuRepository(BenchmarkData.menu(menuSize));
+        order = new TableOrder(menuRepository.getCatalog());
+        for (int i = 0; i < menuSize; i += 3)
+            order.setQuantity(i, 1 + i % 5);
+    }
+
+    @Benchmark
+    public List<MenuDataModel> getMenu() {
+        return menuRepository.getMenu();
+    }
+
+    @Benchmark
+    public MenuCatalog getCatalog() {
+        return menuRepository.getCatalog();
+    }
+
+    @Benchmark
+    public double orderTotal() {
+        return order.getTotalAmount();
+    }
+}
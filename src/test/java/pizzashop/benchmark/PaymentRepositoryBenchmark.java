@@ -0,0 +1,74 @@
+package pizzashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pizzashop.repository.ParallelPaymentLoader;
+import pizzashop.repository.PaymentJournal;
+import pizzashop.repository.PaymentRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PaymentRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int historySize;
+
+    private File file;
+    private PaymentRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.paymentHistory(historySize);
+        repository = new PaymentRepository(new PaymentJournal(file));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public int load() {
+        return new PaymentRepository(new PaymentJournal(file)).getAll().size();
+    }
+
+    //parsing alone on one thread, the baseline for parseParallel()
+    @Benchmark
+    public int parseSequential() {
+        int[] count = new int[1];
+        new PaymentJournal(file).readAll(payment -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int parseParallel() throws IOException {
+        int[] count = new int[1];
+        new ParallelPaymentLoader().load(file, payment -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public void writeAll() {
+        repository.writeAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double tableAggregate() {
+        return repository.getTableAggregate(3).getTotal();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int tablePayments() {
+        return repository.getByTable(3).size();
+    }
+}
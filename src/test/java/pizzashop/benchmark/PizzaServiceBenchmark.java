@@ -0,0 +1,51 @@
+package pizzashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pizzashop.model.PaymentType;
+import pizzashop.repository.MenuRepository;
+import pizzashop.repository.PaymentJournal;
+import pizzashop.repository.PaymentRepository;
+import pizzashop.service.PizzaService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PizzaServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int historySize;
+
+    private File file;
+    private PaymentRepository repository;
+    private PizzaService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.paymentHistory(historySize);
+        repository = new PaymentRepository(new PaymentJournal(file));
+        service = new PizzaService(new MenuRepository(), repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void addPayment() {
+        service.addPayment(3, PaymentType.CARD, 42.5);
+    }
+
+    @Benchmark
+    public double getTotalAmount() {
+        return service.getTotalAmount(PaymentType.CASH) + service.getTotalAmount(PaymentType.CARD);
+    }
+}
@@ -0,0 +1,72 @@
+package pizzashop.metrics;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            if (bucket > 0)
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    void testPercentilesAreWithinOneSixteenth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++)
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.getPercentile(0.50), 500_000 / 16.0);
+        assertEquals(950_000, histogram.getPercentile(0.95), 950_000 / 16.0);
+        assertEquals(990_000, histogram.getPercentile(0.99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getPercentile(1.0));
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    void testRecordingDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        LatencyHistogram histogram = new LatencyHistogram();
+        Counter counter = new Counter();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i);
+            counter.increment();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i * 31L);
+            counter.increment();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(allocated < 1024, "recording allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,82 @@
+package pizzashop.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void testMetricsAreSharedByName() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        assertSame(registry.counter("orders"), registry.counter("orders"));
+        assertSame(registry.histogram("latency"), registry.histogram("latency"));
+        assertNotSame(registry.counter("orders"), registry.counter("payments"));
+    }
+
+    @Test
+    void testSnapshotFile(@TempDir File dir) throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("orders").add(3);
+        registry.gauge("queue", () -> 7);
+        registry.histogram("latency").record(2_000_000);
+        File file = new File(dir, "metrics.txt");
+
+        try (AutoCloseable export = registry.exportPeriodically(file, 60_000)) {
+            registry.counter("orders").increment();
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).startsWith("# pizzashop metrics"));
+        assertTrue(lines.contains("orders counter 4"));
+        assertTrue(lines.contains("queue gauge 7"));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("latency histogram count=1 ") && line.contains("max=2.000")));
+    }
+
+    @Test
+    void testRemovingAnOldGaugeKeepsTheNewerOne() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Gauge old = registry.gauge("queue", new ArrayList<>(), List::size);
+        registry.gauge("queue", () -> 5);
+
+        registry.removeGauge("queue", old);
+
+        assertTrue(snapshot(registry).contains("queue gauge 5"));
+    }
+
+    @Test
+    void testGaugeDoesNotKeepItsOwnerAlive() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        List<String> owner = new ArrayList<>();
+        owner.add("ticket");
+        registry.gauge("tickets", owner, List::size);
+        assertTrue(snapshot(registry).contains("tickets gauge 1"));
+        WeakReference<List<String>> reference = new WeakReference<>(owner);
+
+        owner = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(reference.get());
+        assertFalse(snapshot(registry).contains("tickets"));
+    }
+
+    private static String snapshot(MetricsRegistry registry) {
+        StringWriter out = new StringWriter();
+        registry.writeSnapshot(new PrintWriter(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package pizzashop.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableOrderTest {
+
+    private final MenuCatalog catalog = new MenuCatalog(1,
+            new String[]{"Hawaii", "Margherita", "Funghi"}, new double[]{7.5, 8.0, 11.5});
+
+    @Test
+    void testTablesShareTheCatalogButNotQuantities() {
+        TableOrder table1 = new TableOrder(catalog);
+        TableOrder table2 = new TableOrder(catalog);
+
+        table1.setQuantity(1, 2);
+
+        assertSame(table1.getCatalog(), table2.getCatalog());
+        assertEquals(2, table1.getQuantity(1));
+        assertEquals(0, table2.getQuantity(1));
+    }
+
+    @Test
+    void testTotalAndOrderedItems() {
+        TableOrder order = new TableOrder(catalog);
+        order.setQuantity(0, 1);
+        order.setQuantity(2, 2);
+
+        assertEquals(30.5, order.getTotalAmount());
+        assertEquals(Arrays.asList(new OrderLine("Hawaii", 1), new OrderLine("Funghi", 2)), order.getOrderLines());
+    }
+
+    @Test
+    void testQuantitiesMoveToNewMenuVersion() {
+        TableOrder order = new TableOrder(catalog);
+        order.setQuantity(0, 1);
+        order.setQuantity(2, 3);
+        MenuCatalog newVersion = new MenuCatalog(2,
+                new String[]{"Funghi", "Margherita", "Calzone"}, new double[]{12.0, 8.0, 11.0});
+
+        TableOrder moved = order.withCatalog(newVersion);
+
+        assertEquals(3, moved.getQuantity(0));
+        assertEquals(0, moved.getQuantity(1));
+        assertEquals(0, moved.getQuantity(2));
+        assertEquals(36.0, moved.getTotalAmount());
+    }
+
+    @Test
+    void testNegativeQuantity() {
+        assertThrows(IllegalArgumentException.class, () -> new TableOrder(catalog).setQuantity(0, -1));
+    }
+}
@@ -0,0 +1,108 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitWriterTest {
+
+    private final String filename = "test_payments.txt";
+
+    private void refreshInputFile() throws IOException {
+        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
+        File inputFile = new File(classLoader.getResource(filename).getFile());
+
+        if (inputFile.exists() && !inputFile.delete())
+            throw new IOException("File already existed but could not be deleted.");
+
+        if (!inputFile.createNewFile())
+            throw new IOException("New file could not be created.");
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        refreshInputFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        refreshInputFile();
+    }
+
+    @Test
+    void testAsyncPaymentsArePersistedInOrder() {
+        List<CompletableFuture<Payment>> pending = new ArrayList<>();
+        try (PaymentRepository repository = new PaymentRepository(filename, 4, 5)) {
+            for (int i = 1; i <= 10; i++)
+                pending.add(repository.addAsync(new Payment(i % 8 + 1, PaymentType.CARD, i)));
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+            assertEquals(10, repository.getAll().size());
+        }
+
+        List<Payment> reloaded = new PaymentRepository(filename).getAll();
+        assertEquals(10, reloaded.size());
+        for (int i = 1; i <= 10; i++)
+            assertEquals(i, reloaded.get(i - 1).getAmount());
+    }
+
+    @Test
+    void testCloseFlushesPendingBatch() {
+        CompletableFuture<Payment> written;
+        try (PaymentRepository repository = new PaymentRepository(filename, 100, 60_000)) {
+            written = repository.addAsync(new Payment(1, PaymentType.CASH, 3));
+        }
+
+        assertTrue(written.isDone());
+        assertFalse(written.isCompletedExceptionally());
+        assertEquals(1, new PaymentRepository(filename).getAll().size());
+    }
+
+    @Test
+    void testMarkCompletesWithThePositionAfterEarlierPayments() {
+        PaymentJournal journal = new PaymentJournal(filename);
+        CompletableFuture<Long> mark;
+        try (GroupCommitWriter writer = new GroupCommitWriter(journal, 100, 60_000)) {
+            writer.submit(new Payment(1, PaymentType.CASH, 3, 1));
+            writer.submit(new Payment(2, PaymentType.CARD, 4, 2));
+            mark = writer.mark();
+            writer.submit(new Payment(3, PaymentType.CARD, 5, 3));
+        }
+
+        List<Payment> after = new ArrayList<>();
+        journal.readFrom(mark.join(), after::add);
+        assertEquals(1, after.size());
+        assertEquals(3, after.get(0).getTableNumber());
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PaymentRepository(filename, 0, 5));
+    }
+
+    @Test
+    void testFailedBatchIsReportedAsUncheckedIOException() {
+        File file = new File(PaymentRepository.class.getClassLoader().getResource(filename).getFile());
+        PaymentJournal failing = new PaymentJournal(file) {
+            @Override
+            public void appendAll(List<Payment> payments) throws IOException {
+                throw new IOException("disk gone");
+            }
+        };
+
+        try (PaymentRepository repository = new PaymentRepository(failing, 4, 0)) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> repository.add(new Payment(1, PaymentType.CASH, 10)));
+            assertEquals("disk gone", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPaymentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void assertSamePayments(List<Payment> expected, List<Payment> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTableNumber(), actual.get(i).getTableNumber());
+            assertEquals(expected.get(i).getType(), actual.get(i).getType());
+            assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount());
+        }
+    }
+
+    @Test
+    void testPaymentsSurviveReopenAcrossSegments() {
+        File segments = tempDir.resolve("segments").toFile();
+        try (PaymentRepository repository = new PaymentRepository(new MappedPaymentStore(segments, 3))) {
+            for (int i = 1; i <= 7; i++)
+                repository.add(new Payment(i, i % 2 == 0 ? PaymentType.CARD : PaymentType.CASH, i * 1.5));
+        }
+
+        assertEquals(3, segments.listFiles().length);
+        try (PaymentRepository reopened = new PaymentRepository(new MappedPaymentStore(segments, 3))) {
+            assertEquals(7, reopened.getAll().size());
+            assertEquals(7, reopened.getAll().get(6).getTableNumber());
+            assertEquals(PaymentType.CASH, reopened.getAll().get(6).getType());
+            assertEquals(10.5, reopened.getAll().get(6).getAmount());
+        }
+    }
+
+    @Test
+    void testPositionsStayValidAfterCompaction() throws IOException {
+        File segments = tempDir.resolve("segments").toFile();
+        List<Payment> read = new ArrayList<>();
+        try (MappedPaymentStore store = new MappedPaymentStore(segments, 4)) {
+            for (int i = 1; i <= 6; i++)
+                store.append(new Payment(i, PaymentType.CASH, i, i));
+            long position = store.position();
+            for (int i = 7; i <= 10; i++)
+                store.append(new Payment(i, PaymentType.CARD, i, i));
+
+            store.compact(position);
+            assertEquals(2, segments.listFiles().length);
+            store.readFrom(position, read::add);
+        }
+        assertEquals(Arrays.asList(7, 8, 9, 10), read.stream().map(Payment::getTableNumber).collect(Collectors.toList()));
+
+        //reopened, the remaining segments keep their numbers and new ones continue after them
+        try (MappedPaymentStore reopened = new MappedPaymentStore(segments, 4)) {
+            List<Payment> all = new ArrayList<>();
+            reopened.readAll(all::add);
+            assertEquals(5, all.get(0).getTableNumber());
+            reopened.appendAll(Arrays.asList(new Payment(11, PaymentType.CASH, 11, 11), new Payment(12, PaymentType.CASH, 12, 12)));
+            read.clear();
+            reopened.readFrom(reopened.position() - 1, read::add);
+            assertEquals(12, read.get(0).getTableNumber());
+            assertThrows(IllegalStateException.class, () -> reopened.readFrom(0, read::add));
+        }
+        assertTrue(new File(segments, "payments-000002.seg").exists());
+        assertFalse(new File(segments, "payments-000000.seg").exists());
+    }
+
+    @Test
+    void testConversionRoundTrip() throws IOException {
+        File text = tempDir.resolve("payments.txt").toFile();
+        Files.write(text.toPath(), Arrays.asList("1,CASH,10.0", "8,CARD,12.5", "3,CASH,0.1"));
+        File segments = tempDir.resolve("segments").toFile();
+        File back = tempDir.resolve("back.txt").toFile();
+
+        PaymentFileConverter.textToBinary(text, segments);
+        PaymentFileConverter.binaryToText(segments, back);
+
+        List<Payment> original = new PaymentRepository(new PaymentJournal(text)).getAll();
+        try (PaymentRepository binary = new PaymentRepository(new MappedPaymentStore(segments))) {
+            assertSamePayments(original, binary.getAll());
+        }
+        assertEquals(Files.readAllLines(text.toPath()), Files.readAllLines(back.toPath()));
+    }
+
+    @Test
+    void testVersionOneSegmentsAreStillRead() throws IOException {
+        File segments = tempDir.resolve("segments").toFile();
+        assertTrue(segments.mkdirs());
+        ByteBuffer v1 = ByteBuffer.allocate(MappedPaymentStore.HEADER_SIZE + 4 * MappedPaymentStore.V1_RECORD_SIZE);
+        v1.putInt(MappedPaymentStore.MAGIC).putInt(1).putInt(MappedPaymentStore.V1_RECORD_SIZE).putInt(1);
+        v1.putInt(4).putInt(PaymentType.CARD.ordinal()).putDouble(12.5);
+        Files.write(new File(segments, "payments-000000.seg").toPath(), v1.array());
+
+        try (PaymentRepository repository = new PaymentRepository(new MappedPaymentStore(segments))) {
+            repository.add(new Payment(5, PaymentType.CASH, 3, 1_000));
+        }
+
+        try (PaymentRepository reopened = new PaymentRepository(new MappedPaymentStore(segments))) {
+            assertEquals(new Payment(4, PaymentType.CARD, 12.5, 0), reopened.getAll().get(0));
+            assertEquals(new Payment(5, PaymentType.CASH, 3, 1_000), reopened.getAll().get(1));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 3, MappedPaymentStore.HEADER_SIZE - 1})
+    void testShortSegmentIsRejected(int length) throws IOException {
+        File segments = tempDir.resolve("segments").toFile();
+        assertTrue(segments.mkdirs());
+        Files.write(new File(segments, "payments-000000.seg").toPath(), new byte[length]);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new MappedPaymentStore(segments));
+        assertTrue(e.getCause().getMessage().endsWith("is not a payment segment."));
+    }
+
+    @Test
+    void testTruncateTakesBackAnAppendAcrossSegments() throws IOException {
+        File segments = tempDir.resolve("segments").toFile();
+        try (MappedPaymentStore store = new MappedPaymentStore(segments, 3)) {
+            store.appendAll(Arrays.asList(new Payment(1, PaymentType.CASH, 1), new Payment(2, PaymentType.CASH, 2)));
+            long position = store.position();
+            store.appendAll(Arrays.asList(new Payment(3, PaymentType.CASH, 3), new Payment(4, PaymentType.CASH, 4),
+                    new Payment(5, PaymentType.CASH, 5)));
+
+            store.truncate(position);
+
+            assertEquals(position, store.position());
+            assertEquals(1, segments.listFiles().length);
+            store.appendAll(Collections.singletonList(new Payment(6, PaymentType.CARD, 6)));
+        }
+        try (PaymentRepository reopened = new PaymentRepository(new MappedPaymentStore(segments, 3))) {
+            assertEquals(Arrays.asList(1, 2, 6), reopened.getAll().stream().map(Payment::getTableNumber).collect(Collectors.toList()));
+        }
+    }
+}
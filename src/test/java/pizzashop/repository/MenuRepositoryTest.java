@@ -0,0 +1,70 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.MenuCatalog;
+import pizzashop.model.MenuDataModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuRepositoryTest {
+
+    private final MenuRepository repository = new MenuRepository();
+
+    @Test
+    void testCatalogIsParsedOnce() {
+        MenuCatalog first = repository.getCatalog();
+
+        assertSame(first, repository.getCatalog());
+        assertEquals(9, first.size());
+        assertEquals("Hawaii", first.getName(0));
+        assertEquals(7.5, first.getPrice(0));
+    }
+
+    @Test
+    void testEveryTableGetsItsOwnQuantities() {
+        List<MenuDataModel> table1 = repository.getMenu();
+        List<MenuDataModel> table2 = repository.getMenu();
+
+        table1.get(0).setQuantity(3);
+
+        assertEquals(0, table2.get(0).getQuantity());
+    }
+
+    @Test
+    void testChangedFileIsReloaded() {
+        File menu = new File(MenuRepository.class.getClassLoader().getResource("data/menu.txt").getFile());
+        long lastModified = menu.lastModified();
+        MenuCatalog first = repository.getCatalog();
+        try {
+            assertTrue(menu.setLastModified(lastModified - 60_000));
+
+            MenuCatalog reloaded = repository.getCatalog();
+
+            assertNotSame(first, reloaded);
+            assertEquals(first.getVersion() + 1, reloaded.getVersion());
+            assertEquals(first.size(), reloaded.size());
+        } finally {
+            menu.setLastModified(lastModified);
+        }
+    }
+
+    @Test
+    void testLineWithTooManyFieldsIsSkipped(@TempDir Path dir) throws IOException {
+        File menu = dir.resolve("menu.txt").toFile();
+        Files.write(menu.toPath(), Arrays.asList("Hawaii,7.5", String.join(",", Collections.nCopies(17, "Salami")), "Funghi,6.0"));
+
+        MenuCatalog catalog = new MenuRepository(menu).getCatalog();
+
+        assertEquals(2, catalog.size());
+        assertEquals("Funghi", catalog.getName(1));
+    }
+}
@@ -0,0 +1,129 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPaymentLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File paymentsFile(int count, String separator) throws IOException {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            PaymentType type = random.nextBoolean() ? PaymentType.CASH : PaymentType.CARD;
+            Payment payment = new Payment(1 + random.nextInt(60), type, random.nextInt(10_000) / 100.0 + 0.01,
+                    i % 5 == 0 ? 0 : 1_500_000_000_000L + i);
+            text.append(payment).append(separator);
+            if (i % 97 == 0)
+                text.append(separator);
+        }
+        File file = tempDir.resolve("payments.txt").toFile();
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<Payment> sequential(File file) {
+        List<Payment> payments = new ArrayList<>();
+        new PaymentJournal(file).readAll(payments::add);
+        return payments;
+    }
+
+    private static List<Payment> parallel(File file, int chunkBytes) throws IOException {
+        List<Payment> payments = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelPaymentLoader(pool, chunkBytes).load(file, payments::add);
+        } finally {
+            pool.shutdown();
+        }
+        return payments;
+    }
+
+    @Test
+    void testMatchesSequentialLoaderForAnyChunkSize() throws IOException {
+        File file = paymentsFile(20_000, "\n");
+        List<Payment> expected = sequential(file);
+
+        assertEquals(20_000, expected.size());
+        for (int chunkBytes : new int[]{1, 7, 64, 4096, 1 << 20})
+            assertEquals(expected, parallel(file, chunkBytes), "chunk size " + chunkBytes);
+    }
+
+    @Test
+    void testWindowsLineEndings() throws IOException {
+        File file = paymentsFile(2_000, "\r\n");
+
+        assertEquals(sequential(file), parallel(file, 100));
+    }
+
+    @Test
+    void testMissingTrailingNewlineAndEmptyFile() throws IOException {
+        File file = tempDir.resolve("short.txt").toFile();
+        Files.write(file.toPath(), "1,CASH,10.0\n2,CARD,4.5,100".getBytes(StandardCharsets.UTF_8));
+        //the loader runs first and on the untouched file; the unterminated line may still be being written
+        List<Payment> loaded = parallel(file, 5);
+        assertEquals(1, loaded.size());
+        assertEquals(sequential(file), loaded);
+        assertEquals(26, file.length());
+
+        Files.write(file.toPath(), new byte[0]);
+        assertTrue(parallel(file, 5).isEmpty());
+    }
+
+    @Test
+    void testRepositoryLoadsLargeFilesInParallel() throws IOException {
+        File file = paymentsFile(120_000, "\n");
+        assertTrue(file.length() > ParallelPaymentLoader.DEFAULT_CHUNK_BYTES);
+
+        PaymentRepository parallel = new PaymentRepository(new PaymentJournal(file));
+        //a bounded window always loads sequentially
+        PaymentRepository sequential = new PaymentRepository(new PaymentJournal(file), 1_000_000);
+
+        assertEquals(sequential.getAll(), parallel.getAll());
+        assertEquals(sequential.getTotalAmount(PaymentType.CASH), parallel.getTotalAmount(PaymentType.CASH));
+    }
+
+    @Test
+    void testWarningsGiveTheFileOffsetWhateverTheChunkSize() throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        Files.write(file.toPath(), "1,CASH,10.0\n2,CASH,20.0\n3,CHEQUE,5.0\n4,CARD,7.5\n".getBytes(StandardCharsets.US_ASCII));
+        StringWriter warnings = new StringWriter();
+        WriterAppender appender = new WriterAppender(new SimpleLayout(), warnings);
+        appender.setThreshold(Level.WARN);
+        Logger.getLogger(PaymentJournal.class).addAppender(appender);
+        try {
+            for (int chunkBytes : new int[]{1, 16, 1 << 20})
+                assertEquals(3, parallel(file, chunkBytes).size());
+        } finally {
+            Logger.getLogger(PaymentJournal.class).removeAppender(appender);
+        }
+
+        String[] logged = warnings.toString().trim().split("\\R");
+        assertEquals(3, logged.length);
+        //a chunk that starts the file knows the real line number
+        for (String line : logged)
+            assertTrue(line.endsWith("Unknown value in field 2 at byte 24")
+                    || line.endsWith("Unknown value in field 2 at line 3 (byte 24)"), line);
+    }
+}
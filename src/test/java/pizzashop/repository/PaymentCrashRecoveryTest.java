@@ -0,0 +1,73 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//kills a writer process with SIGKILL while it adds payments and checks what the next start recovers.
+//a killed process keeps what reached the operating system, so every mode has to recover every acknowledged payment
+//intact; what a power cut would lose on top of that is covered by SyncingPaymentStoreTest
+class PaymentCrashRecoveryTest {
+
+    @TempDir
+    Path tempDir;
+
+    //adds payment i with amount i forever and prints i once add() returned
+    public static void main(String[] args) {
+        PaymentStore store = open(args[0], new File(args[1]));
+        PaymentRepository repository = new PaymentRepository(new SyncingPaymentStore(store, Durability.parse(args[2])), 100, 8, 1);
+        for (int i = 1; ; i++) {
+            repository.add(new Payment(i % 8 + 1, PaymentType.CASH, i, i));
+            System.out.println(i);
+            System.out.flush();
+        }
+    }
+
+    private static PaymentStore open(String kind, File location) {
+        return kind.equals("mapped") ? new MappedPaymentStore(location, 256) : new PaymentJournal(location);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"journal, sync", "journal, group:32:20", "journal, buffered",
+            "mapped, sync", "mapped, group:32:20", "mapped, buffered"})
+    void testAcknowledgedPaymentsSurviveAKill(String kind, String durability) throws IOException, InterruptedException {
+        File location = tempDir.resolve(kind).toFile();
+        if (kind.equals("journal"))
+            assertTrue(location.createNewFile());
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process writer = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                PaymentCrashRecoveryTest.class.getName(), kind, location.getPath(), durability)
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+
+        int acknowledged = 0;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while (acknowledged < 500 && (line = out.readLine()) != null)
+                acknowledged = Integer.parseInt(line.trim());
+            writer.destroyForcibly();
+            assertTrue(writer.waitFor(30, TimeUnit.SECONDS));
+        }
+        assertEquals(500, acknowledged, "the writer stopped early");
+
+        List<Payment> recovered;
+        try (PaymentRepository repository = new PaymentRepository(open(kind, location))) {
+            recovered = repository.getAll();
+        }
+        assertTrue(recovered.size() >= acknowledged, "recovered " + recovered.size() + " of " + acknowledged);
+        for (int i = 0; i < recovered.size(); i++)
+            assertEquals(i + 1.0, recovered.get(i).getAmount());
+    }
+}
@@ -0,0 +1,122 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentJournalTest {
+
+    private final String filename = "test_payments.txt";
+
+    private File refreshInputFile() throws IOException {
+        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
+        File inputFile = new File(classLoader.getResource(filename).getFile());
+
+        if (inputFile.exists() && !inputFile.delete())
+            throw new IOException("File already existed but could not be deleted.");
+
+        if (!inputFile.createNewFile())
+            throw new IOException("New file could not be created.");
+        return inputFile;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        refreshInputFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        refreshInputFile();
+    }
+
+    @Test
+    void testAppendedPaymentsAreReloaded() {
+        PaymentRepository repository = new PaymentRepository(filename);
+        repository.add(new Payment(1, PaymentType.CASH, 10.5));
+        repository.add(new Payment(2, PaymentType.CARD, 20));
+
+        List<Payment> reloaded = new PaymentRepository(filename).getAll();
+
+        assertEquals(2, reloaded.size());
+        assertEquals(1, reloaded.get(0).getTableNumber());
+        assertEquals(PaymentType.CASH, reloaded.get(0).getType());
+        assertEquals(10.5, reloaded.get(0).getAmount());
+        assertEquals(2, reloaded.get(1).getTableNumber());
+        assertEquals(PaymentType.CARD, reloaded.get(1).getType());
+        assertEquals(20, reloaded.get(1).getAmount());
+    }
+
+    @Test
+    void testTornLastRecordIsDiscarded() throws IOException {
+        PaymentRepository repository = new PaymentRepository(filename);
+        repository.add(new Payment(3, PaymentType.CASH, 7));
+        File file = new File(PaymentRepository.class.getClassLoader().getResource(filename).getFile());
+        try (Writer w = new FileWriter(file, true)) {
+            w.write("4,CA");
+        }
+
+        PaymentRepository recovered = new PaymentRepository(filename);
+        assertEquals(1, recovered.getAll().size());
+        assertEquals(3, recovered.getAll().get(0).getTableNumber());
+
+        recovered.add(new Payment(5, PaymentType.CARD, 9));
+        List<Payment> reloaded = new PaymentRepository(filename).getAll();
+        assertEquals(2, reloaded.size());
+        assertEquals(5, reloaded.get(1).getTableNumber());
+    }
+
+    @Test
+    void testReadsLeaveALineBeingWrittenAlone() throws IOException {
+        PaymentRepository repository = new PaymentRepository(filename);
+        repository.add(new Payment(3, PaymentType.CASH, 7));
+        File file = new File(PaymentRepository.class.getClassLoader().getResource(filename).getFile());
+        try (Writer w = new FileWriter(file, true)) {
+            w.write("4,CA");
+        }
+        long length = file.length();
+
+        try (Stream<Payment> payments = repository.stream()) {
+            assertEquals(1, payments.count());
+        }
+        List<Payment> read = new ArrayList<>();
+        new PaymentJournal(file).readFrom(0, read::add);
+        new PaymentJournal(file).readAllParallel(read::add);
+
+        assertEquals(2, read.size());
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    void testLineWithTooManyFieldsIsSkipped() throws IOException {
+        File file = new File(PaymentRepository.class.getClassLoader().getResource(filename).getFile());
+        try (Writer w = new FileWriter(file)) {
+            w.write("1,CASH,10.0\n" + String.join(",", Collections.nCopies(17, "2")) + "\n3,CARD,5.5\n");
+        }
+
+        assertEquals(2, new PaymentRepository(filename).getAll().size());
+        List<Payment> read = new ArrayList<>();
+        PaymentJournal journal = new PaymentJournal(file);
+        journal.readAll(read::add);
+        journal.readFrom(0, read::add);
+        journal.readAllParallel(read::add);
+        try (Stream<Payment> payments = journal.stream()) {
+            payments.forEach(read::add);
+        }
+        assertEquals(8, read.size());
+        assertTrue(read.stream().allMatch(payment -> payment.getTableNumber() != 2));
+    }
+}
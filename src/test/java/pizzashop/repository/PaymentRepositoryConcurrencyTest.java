@@ -0,0 +1,158 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentRepositoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PAYMENTS_PER_THREAD = 2_000;
+
+    private final String filename = "test_payments.txt";
+
+    private void refreshInputFile() throws IOException {
+        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
+        File inputFile = new File(classLoader.getResource(filename).getFile());
+
+        if (inputFile.exists() && !inputFile.delete())
+            throw new IOException("File already existed but could not be deleted.");
+
+        if (!inputFile.createNewFile())
+            throw new IOException("New file could not be created.");
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        refreshInputFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        refreshInputFile();
+    }
+
+    private static double scanTotal(List<Payment> payments, PaymentType type) {
+        double total = 0;
+        for (Payment p : payments)
+            if (p.getType() == type)
+                total += p.getAmount();
+        return total;
+    }
+
+    @Test
+    void testConcurrentTerminalsLoseNoPayment() throws Exception {
+        ExecutorService terminals = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try (PaymentRepository repository = new PaymentRepository(filename, 64, 2)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int table = t % 8 + 1;
+                writers.add(terminals.submit(() -> {
+                    start.await();
+                    List<CompletableFuture<Payment>> written = new ArrayList<>();
+                    for (int i = 0; i < PAYMENTS_PER_THREAD; i++)
+                        written.add(repository.addAsync(new Payment(table, i % 2 == 0 ? PaymentType.CASH : PaymentType.CARD, 1 + i % 5)));
+                    CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).join();
+                    return null;
+                }));
+            }
+            //a reader iterates snapshots the whole time the terminals are writing
+            Future<Integer> reader = terminals.submit(() -> {
+                start.await();
+                int lastSize = 0;
+                while (writing.get()) {
+                    List<Payment> snapshot = repository.getAll();
+                    int seen = 0;
+                    for (Payment p : snapshot) {
+                        assertNotNull(p);
+                        seen++;
+                    }
+                    assertEquals(snapshot.size(), seen);
+                    assertTrue(seen >= lastSize);
+                    lastSize = seen;
+                }
+                return lastSize;
+            });
+
+            start.countDown();
+            for (Future<?> w : writers)
+                w.get(60, TimeUnit.SECONDS);
+            writing.set(false);
+            reader.get(60, TimeUnit.SECONDS);
+
+            List<Payment> all = repository.getAll();
+            assertEquals(THREADS * PAYMENTS_PER_THREAD, all.size());
+            for (PaymentType type : PaymentType.values())
+                assertEquals(scanTotal(all, type), repository.getTotalAmount(type));
+        } finally {
+            terminals.shutdownNow();
+        }
+
+        PaymentRepository reloaded = new PaymentRepository(filename);
+        assertEquals(THREADS * PAYMENTS_PER_THREAD, reloaded.getAll().size());
+        for (PaymentType type : PaymentType.values())
+            assertEquals(scanTotal(reloaded.getAll(), type), reloaded.getTotalAmount(type));
+    }
+
+    @Test
+    void testSnapshotDoesNotChangeAfterAdd() {
+        PaymentRepository repository = new PaymentRepository(filename);
+        repository.add(new Payment(1, PaymentType.CASH, 2));
+        List<Payment> snapshot = repository.getAll();
+
+        repository.add(new Payment(2, PaymentType.CARD, 3));
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, repository.getAll().size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Payment(3, PaymentType.CASH, 1)));
+    }
+
+    @Test
+    void testReadersDoNotWaitForADirectWrite() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentJournal slowDisk = new PaymentJournal(filename) {
+            @Override
+            public void appendAll(List<Payment> payments) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.appendAll(payments);
+            }
+        };
+        PaymentRepository repository = new PaymentRepository(slowDisk);
+        ExecutorService terminal = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> added = terminal.submit(() -> repository.add(new Payment(1, PaymentType.CASH, 5)));
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+            //the write is stuck on the disk, the totals and aggregates stay readable
+            assertEquals(0, repository.getTotalAmount(PaymentType.CASH));
+            assertEquals(0, repository.getTableAggregate(1).getCount());
+            assertTrue(repository.getAll().isEmpty());
+
+            release.countDown();
+            added.get(10, TimeUnit.SECONDS);
+            assertEquals(5, repository.getTotalAmount(PaymentType.CASH));
+        } finally {
+            release.countDown();
+            terminal.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+import pizzashop.model.TableAggregate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Payment payment(int i) {
+        return new Payment(i % 8 + 1, i % 3 == 0 ? PaymentType.CARD : PaymentType.CASH, i % 50 + 0.25, i);
+    }
+
+    //the journal refuses full replays, so only the tail after the snapshot can be read
+    private static PaymentJournal tailOnly(File file) {
+        return new PaymentJournal(file) {
+            @Override
+            public void readAll(Consumer<Payment> consumer) {
+                fail("the whole journal was replayed");
+            }
+
+            @Override
+            public void readAllParallel(Consumer<Payment> consumer) {
+                fail("the whole journal was replayed");
+            }
+        };
+    }
+
+    private static void assertSameState(PaymentRepository expected, PaymentRepository actual) {
+        assertEquals(expected.getTotalAmount(PaymentType.CASH), actual.getTotalAmount(PaymentType.CASH));
+        assertEquals(expected.getTotalAmount(PaymentType.CARD), actual.getTotalAmount(PaymentType.CARD));
+        List<TableAggregate> expectedTables = expected.getTableAggregates();
+        List<TableAggregate> actualTables = actual.getTableAggregates();
+        assertEquals(expectedTables.size(), actualTables.size());
+        for (int i = 0; i < expectedTables.size(); i++) {
+            assertEquals(expectedTables.get(i).getTable(), actualTables.get(i).getTable());
+            assertEquals(expectedTables.get(i).getCount(), actualTables.get(i).getCount());
+            assertEquals(expectedTables.get(i).getTotal(), actualTables.get(i).getTotal());
+            assertEquals(expectedTables.get(i).getMin(), actualTables.get(i).getMin());
+            assertEquals(expectedTables.get(i).getMax(), actualTables.get(i).getMax());
+        }
+        List<Payment> expectedRecent = expected.getAll();
+        List<Payment> actualRecent = actual.getAll();
+        Payment last = expectedRecent.get(expectedRecent.size() - 1);
+        assertEquals(last, actualRecent.get(actualRecent.size() - 1));
+    }
+
+    @Test
+    void testStartupReplaysOnlyTheTailAfterTheSnapshot() throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        assertTrue(file.createNewFile());
+        try (PaymentRepository repository = new PaymentRepository(new PaymentJournal(file), 50, snapshot, 100)) {
+            for (int i = 1; i <= 1_000; i++)
+                repository.add(payment(i));
+        }
+        assertTrue(snapshot.exists());
+        //payments appended by another writer after the last snapshot form the tail
+        List<Payment> tail = new ArrayList<>();
+        for (int i = 1_001; i <= 1_030; i++)
+            tail.add(payment(i));
+        new PaymentJournal(file).appendAll(tail);
+
+        PaymentRepository full = new PaymentRepository(new PaymentJournal(file), 50);
+        try (PaymentRepository restored = new PaymentRepository(tailOnly(file), 50, snapshot, 100)) {
+            assertSameState(full, restored);
+            assertEquals(full.getAll().subList(full.getAll().size() - 50, full.getAll().size()),
+                    restored.getAll().subList(restored.getAll().size() - 50, restored.getAll().size()));
+            assertEquals(payment(1_030), restored.getAll().get(restored.getAll().size() - 1));
+
+            restored.add(payment(1_031));
+            full.add(payment(1_031));
+            assertSameState(full, restored);
+        }
+    }
+
+    @Test
+    void testSnapshotsCompactMappedSegmentsWithGroupCommit() {
+        File segments = tempDir.resolve("segments").toFile();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        PaymentRepository expected = new PaymentRepository(new MappedPaymentStore(tempDir.resolve("all").toFile(), 10), 20);
+        try (PaymentRepository repository = new PaymentRepository(new MappedPaymentStore(segments, 10), 20, snapshot, 50, 8, 1)) {
+            for (int i = 1; i <= 500; i++) {
+                repository.addAsync(payment(i));
+                expected.add(payment(i));
+            }
+        }
+        //the last snapshot is taken at close and covers everything, only the current segment is kept
+        assertEquals(1, segments.listFiles().length);
+
+        try (PaymentRepository restored = new PaymentRepository(new MappedPaymentStore(segments, 10), 20, snapshot, 50)) {
+            assertSameState(expected, restored);
+            for (int i = 501; i <= 525; i++) {
+                restored.add(payment(i));
+                expected.add(payment(i));
+            }
+            assertSameState(expected, restored);
+        }
+        try (PaymentRepository restored = new PaymentRepository(new MappedPaymentStore(segments, 10), 20, snapshot, 50)) {
+            assertSameState(expected, restored);
+        }
+    }
+
+    @Test
+    void testUnreadableSnapshotFallsBackToAFullReplay() throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 1; i <= 300; i++)
+            payments.add(payment(i));
+        assertTrue(file.createNewFile());
+        new PaymentJournal(file).appendAll(payments);
+        Files.write(snapshot.toPath(), new byte[]{1, 2, 3});
+
+        PaymentRepository full = new PaymentRepository(new PaymentJournal(file), 10);
+        try (PaymentRepository restored = new PaymentRepository(new PaymentJournal(file), 10, snapshot, 1_000)) {
+            assertSameState(full, restored);
+        }
+    }
+
+    @Test
+    void testSnapshotAheadOfTheStoreIsIgnored() throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        new PaymentSnapshot(1_000_000, new long[PaymentType.values().length], new long[0][],
+                Collections.singletonList(payment(1))).write(snapshot);
+        assertTrue(file.createNewFile());
+        new PaymentJournal(file).appendAll(Collections.singletonList(payment(2)));
+
+        try (PaymentRepository restored = new PaymentRepository(new PaymentJournal(file), 10, snapshot, 1_000)) {
+            assertEquals(Collections.singletonList(payment(2)), restored.getAll());
+            assertEquals(payment(2).getAmount(), restored.getTotalAmount(payment(2).getType()));
+        }
+    }
+
+    @Test
+    void testSnapshotsNeedABoundedWindow() {
+        File file = tempDir.resolve("payments.txt").toFile();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        assertThrows(IllegalArgumentException.class,
+                () -> new PaymentRepository(new PaymentJournal(file), PaymentRepository.UNBOUNDED, snapshot, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PaymentRepository(new PaymentJournal(file), 10, snapshot, 0));
+    }
+}
@@ -0,0 +1,103 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File paymentsFile(int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+            lines.add(new Payment(i % 8 + 1, i % 3 == 0 ? PaymentType.CARD : PaymentType.CASH, i % 50 + 0.25, i).toString());
+        File file = tempDir.resolve("payments.txt").toFile();
+        Files.write(file.toPath(), lines);
+        return file;
+    }
+
+    @Test
+    void testJournalStreamMatchesLoadedHistory() throws IOException {
+        File file = paymentsFile(500);
+        PaymentRepository repository = new PaymentRepository(new PaymentJournal(file));
+
+        try (Stream<Payment> payments = repository.stream()) {
+            assertEquals(repository.getAll(), payments.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testMappedStoreStream() {
+        File segments = tempDir.resolve("segments").toFile();
+        try (PaymentRepository repository = new PaymentRepository(new MappedPaymentStore(segments, 7))) {
+            for (int i = 1; i <= 20; i++)
+                repository.add(new Payment(i % 8 + 1, PaymentType.CARD, i, i));
+
+            try (Stream<Payment> payments = repository.stream()) {
+                assertEquals(repository.getAll(), payments.collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    void testBoundedWindowKeepsTotalsForTheWholeHistory() throws IOException {
+        File file = paymentsFile(10_000);
+        PaymentRepository full = new PaymentRepository(new PaymentJournal(file));
+        PaymentRepository windowed = new PaymentRepository(new PaymentJournal(file), 100);
+
+        int resident = windowed.getAll().size();
+        assertTrue(resident >= 100 && resident < 200, "resident payments: " + resident);
+        assertEquals(full.getAll().get(9_999), windowed.getAll().get(resident - 1));
+        assertEquals(full.getTotalAmount(PaymentType.CASH), windowed.getTotalAmount(PaymentType.CASH));
+        assertEquals(full.getTotalAmount(PaymentType.CARD), windowed.getTotalAmount(PaymentType.CARD));
+        assertEquals(full.getTableAggregate(3).getTotal(), windowed.getTableAggregate(3).getTotal());
+        assertEquals(full.getTableAggregate(3).getCount(), windowed.getTableAggregate(3).getCount());
+
+        try (Stream<Payment> payments = windowed.stream()) {
+            long cents = payments.filter(p -> p.getType() == PaymentType.CASH).mapToLong(p -> Math.round(p.getAmount() * 100)).sum();
+            assertEquals(full.getTotalAmount(PaymentType.CASH), cents / 100.0);
+        }
+    }
+
+    @Test
+    void testBoundedWindowNeverTruncatesTheStore() throws IOException {
+        File file = paymentsFile(1_000);
+        PaymentRepository windowed = new PaymentRepository(new PaymentJournal(file), 10);
+        windowed.add(new Payment(1, PaymentType.CASH, 1, 5_000));
+
+        windowed.writeAll();
+
+        try (Stream<Payment> payments = windowed.stream()) {
+            assertEquals(1_001, payments.count());
+        }
+    }
+
+    @Test
+    void testInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new PaymentRepository(new PaymentJournal(tempDir.resolve("p.txt").toFile()), 0));
+    }
+
+    @Test
+    void testHugeWindowDoesNotTrimOnEveryPayment() throws IOException {
+        File file = paymentsFile(100_000);
+
+        PaymentRepository windowed = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> new PaymentRepository(new PaymentJournal(file), Integer.MAX_VALUE - 1));
+        assertEquals(100_000, windowed.getAll().size());
+    }
+}
@@ -0,0 +1,78 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+import pizzashop.model.TableAggregate;
+import pizzashop.service.PizzaService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentTableIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PaymentRepository repository(String... lines) throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        Files.write(file.toPath(), Arrays.asList(lines));
+        return new PaymentRepository(new PaymentJournal(file));
+    }
+
+    @Test
+    void testPaymentsByTable() throws IOException {
+        PaymentRepository repository = repository("1,CASH,10.0,100", "2,CARD,5.5,200", "1,CARD,2.5,300");
+        repository.add(new Payment(2, PaymentType.CASH, 4, 400));
+
+        List<Payment> table1 = repository.getByTable(1);
+        assertEquals(Arrays.asList(new Payment(1, PaymentType.CASH, 10.0, 100), new Payment(1, PaymentType.CARD, 2.5, 300)), table1);
+        assertEquals(2, repository.getByTable(2).size());
+        assertEquals(400, repository.getByTable(2).get(1).getTimestamp());
+        assertTrue(repository.getByTable(7).isEmpty());
+    }
+
+    @Test
+    void testRunningAggregates() throws IOException {
+        PaymentRepository repository = repository("3,CASH,0.1", "3,CARD,0.2", "3,CASH,7.5", "5,CARD,1.0");
+        PizzaService service = new PizzaService(new MenuRepository(), repository);
+
+        TableAggregate table3 = service.getTableStats(3);
+        assertEquals(3, table3.getCount());
+        assertEquals(7.8, table3.getTotal());
+        assertEquals(0.1, table3.getMin());
+        assertEquals(7.5, table3.getMax());
+        assertEquals(2.6, table3.getAverage(), 1e-9);
+
+        TableAggregate empty = service.getTableStats(4);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getAverage());
+
+        List<TableAggregate> all = service.getTableStats();
+        assertEquals(2, all.size());
+        assertEquals(3, all.get(0).getTable());
+        assertEquals(5, all.get(1).getTable());
+    }
+
+    @Test
+    void testAggregatesFollowAdds() throws IOException {
+        PaymentRepository repository = repository();
+        for (int i = 1; i <= 1000; i++)
+            repository.add(new Payment(i % 8 + 1, PaymentType.CASH, i));
+
+        long expected = 0;
+        for (Payment payment : repository.getAll())
+            if (payment.getTableNumber() == 1)
+                expected += Math.round(payment.getAmount() * 100);
+        assertEquals(expected / 100.0, repository.getTableAggregate(1).getTotal());
+        assertEquals(125, repository.getByTable(1).size());
+        assertEquals(1000, repository.getTableAggregate(1).getMax());
+    }
+}
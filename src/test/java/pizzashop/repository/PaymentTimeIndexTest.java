@@ -0,0 +1,128 @@
+package pizzashop.repository;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentAggregate;
+import pizzashop.model.PaymentType;
+import pizzashop.service.PizzaService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentTimeIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PaymentRepository repository(String... lines) throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        Files.write(file.toPath(), Arrays.asList(lines));
+        return new PaymentRepository(new PaymentJournal(file));
+    }
+
+    @Test
+    void testTimestampIsAnOptionalFourthField() throws IOException {
+        PaymentRepository repository = repository("1,CASH,10.0", "2,CARD,5.5,1000");
+
+        assertEquals(0, repository.getAll().get(0).getTimestamp());
+        assertEquals(1000, repository.getAll().get(1).getTimestamp());
+        assertEquals("2,CARD,5.5,1000", repository.getAll().get(1).toString());
+        assertEquals("1,CASH,10.0", repository.getAll().get(0).toString());
+    }
+
+    @Test
+    void testRangeQuery() throws IOException {
+        PaymentRepository repository = repository("1,CASH,1.0,100", "2,CASH,2.0,200", "3,CARD,3.0,200", "4,CARD,4.0,300");
+
+        List<Payment> between = repository.getBetween(200, 300);
+        assertEquals(2, between.size());
+        assertEquals(2, between.get(0).getTableNumber());
+        assertEquals(3, between.get(1).getTableNumber());
+        assertTrue(repository.getBetween(301, 400).isEmpty());
+        assertTrue(repository.getBetween(300, 100).isEmpty());
+        assertEquals(4, repository.getBetween(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testAggregatesUseRunningTotals() throws IOException {
+        PaymentRepository repository = repository("1,CASH,0.1,100", "2,CASH,0.2,150", "3,CARD,3.0,250", "4,CARD,4.0,400");
+
+        List<PaymentAggregate> buckets = repository.aggregate(new long[]{100, 200, 300, 400});
+        assertEquals(3, buckets.size());
+        assertEquals(2, buckets.get(0).getCount());
+        assertEquals(0.3, buckets.get(0).getTotal());
+        assertEquals(1, buckets.get(1).getCount());
+        assertEquals(3.0, buckets.get(1).getTotal());
+        assertEquals(0, buckets.get(2).getCount());
+        assertEquals(0.0, buckets.get(2).getTotal());
+        assertThrows(IllegalArgumentException.class, () -> repository.aggregate(new long[]{300, 200}));
+    }
+
+    @Test
+    void testOlderTimestampsAreMovedUpToKeepTimeOrder() throws IOException {
+        PaymentRepository repository = repository("1,CASH,1.0,500");
+
+        repository.add(new Payment(2, PaymentType.CARD, 2.0, 400));
+
+        assertEquals(500, repository.getAll().get(1).getTimestamp());
+        assertEquals(2, repository.getBetween(500, 501).size());
+    }
+
+    @Test
+    void testUntimedPaymentsAreMovedUpWithoutAWarning() throws IOException {
+        StringWriter warnings = new StringWriter();
+        WriterAppender appender = new WriterAppender(new SimpleLayout(), warnings);
+        appender.setThreshold(Level.WARN);
+        Logger.getLogger(PaymentRepository.class).addAppender(appender);
+        try {
+            PaymentRepository repository = repository("1,CASH,1.0,500", "2,CASH,2.0", "3,CARD,3.0,400");
+
+            assertEquals(500, repository.getAll().get(1).getTimestamp());
+            assertEquals(500, repository.getAll().get(2).getTimestamp());
+            String logged = warnings.toString();
+            assertFalse(logged.contains("Payment at 0 "));
+            assertEquals(1, logged.split("is older than the last one", -1).length - 1);
+        } finally {
+            Logger.getLogger(PaymentRepository.class).removeAppender(appender);
+        }
+    }
+
+    @Test
+    void testTakingsPerHourAndDay() throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = LocalDate.of(2020, 3, 10);
+        long noon = day.atTime(12, 0).atZone(zone).toInstant().toEpochMilli();
+        long half = 30 * 60 * 1000;
+        long nextDay = day.plusDays(1).atTime(9, 0).atZone(zone).toInstant().toEpochMilli();
+        PaymentRepository repository = repository("1,CASH,10.0," + noon, "2,CARD,5.0," + (noon + half),
+                "3,CARD,7.0," + (noon + 2 * half), "4,CASH,1.0," + nextDay);
+        PizzaService service = new PizzaService(new MenuRepository(), repository);
+
+        List<PaymentAggregate> hours = service.getTakingsPerHour(day);
+        assertEquals(24, hours.size());
+        assertEquals(15.0, hours.get(12).getTotal());
+        assertEquals(2, hours.get(12).getCount());
+        assertEquals(7.0, hours.get(13).getTotal());
+        assertEquals(0, hours.get(11).getCount());
+
+        List<PaymentAggregate> days = service.getTakingsPerDay(day, day.plusDays(1));
+        assertEquals(2, days.size());
+        assertEquals(22.0, days.get(0).getTotal());
+        assertEquals(1.0, days.get(1).getTotal());
+        assertEquals(3, service.getPaymentsBetween(noon, noon + 3 * half).size());
+    }
+}
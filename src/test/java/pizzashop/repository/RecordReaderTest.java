@@ -0,0 +1,161 @@
+package pizzashop.repository;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import pizzashop.model.PaymentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RecordReaderTest {
+
+    private static RecordReader reader(String text, int bufferSize) {
+        return new RecordReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+
+    private static double parse(String field) throws IOException {
+        RecordReader reader = reader(field, 64);
+        assertTrue(reader.next());
+        return reader.getDouble(0);
+    }
+
+    @Test
+    void testDoublesMatchDoubleParseDouble() throws IOException {
+        Random random = new Random(23);
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            fields.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(30) - 12)));
+            fields.add(String.format("%.2f", random.nextInt(1_000_000) / 100.0));
+            fields.add(Double.toString(Double.longBitsToDouble(random.nextLong())));
+        }
+        String[] special = {"0", "-0.0", "+1.5", " 7.50 ", "1e3", "1.0E-4", "2.5E7", "9007199254740993",
+                "123456789012345678901234567890", "0.1", "1.", ".5", "NaN", "-Infinity", "1.5d", "0x1p3", "4.9E-324"};
+        for (String field : special)
+            fields.add(field);
+
+        for (String field : fields)
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(field)), Double.doubleToLongBits(parse(field)), field);
+    }
+
+    @Test
+    void testIntegers() throws IOException {
+        RecordReader reader = reader("-2147483648,2147483647,+7,9223372036854775807,-9223372036854775808", 16);
+
+        assertTrue(reader.next());
+        assertEquals(Integer.MIN_VALUE, reader.getInt(0));
+        assertEquals(Integer.MAX_VALUE, reader.getInt(1));
+        assertEquals(7, reader.getInt(2));
+        assertEquals(Long.MAX_VALUE, reader.getLong(3));
+        assertEquals(Long.MIN_VALUE, reader.getLong(4));
+        assertThrows(RecordReader.MalformedRecordException.class, () -> reader.getInt(3));
+
+        RecordReader bad = reader("9223372036854775808,1x,,-", 16);
+        assertTrue(bad.next());
+        for (int field = 0; field < 4; field++) {
+            int f = field;
+            assertThrows(RecordReader.MalformedRecordException.class, () -> bad.getLong(f));
+        }
+    }
+
+    @Test
+    void testLinesAcrossBufferRefills() throws IOException {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            longName.append("Quattro Stagioni ");
+        RecordReader reader = reader("\n1,CASH,2.5\r\n\r\n" + longName + ",3\n\n4,CARD,1.25", 8);
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.getLineNumber());
+        assertEquals(1, reader.getInt(0));
+        assertEquals(PaymentType.CASH, PaymentType.values()[reader.getChoice(1, RecordReader.names(PaymentType.values()))]);
+        assertEquals(2.5, reader.getDouble(2));
+        assertTrue(reader.next());
+        assertEquals(longName.toString(), reader.getString(0));
+        assertEquals(4, reader.getLineNumber());
+        assertEquals(15, reader.getLineOffset());
+        assertTrue(reader.next());
+        assertEquals(3, reader.fieldCount());
+        assertEquals(1.25, reader.getDouble(2));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testMalformedRecordsReportTheirPosition() throws IOException {
+        RecordReader reader = reader("1,CASH,2\n2,CHEQUE,3\n", 64);
+
+        assertTrue(reader.next());
+        assertTrue(reader.next());
+        RecordReader.MalformedRecordException e = assertThrows(RecordReader.MalformedRecordException.class,
+                () -> reader.getChoice(1, RecordReader.names(PaymentType.values())));
+        assertEquals(2, e.getLineNumber());
+        assertEquals(9, e.getOffset());
+        assertTrue(e.getMessage().contains("line 2"));
+        assertThrows(RecordReader.MalformedRecordException.class, () -> reader.getDouble(3));
+    }
+
+    @Test
+    void testTooManyFieldsAreReportedByTheFields() throws IOException {
+        RecordReader reader = reader("1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17\n18\n", 64);
+
+        assertTrue(reader.next());
+        RecordReader.MalformedRecordException e = assertThrows(RecordReader.MalformedRecordException.class, () -> reader.getInt(0));
+        assertTrue(e.getMessage().startsWith("More than 16 fields at line 1"));
+        assertTrue(reader.next());
+        assertEquals(18, reader.getInt(0));
+    }
+
+    @Test
+    void testSameResultsAsTheTokenizerOnTheDataFiles() throws IOException {
+        File menu = new File(RecordReaderTest.class.getClassLoader().getResource("data/menu.txt").getFile());
+        RecordReader reader = new RecordReader(new ByteArrayInputStream(Files.readAllBytes(menu.toPath())));
+        for (String line : Files.readAllLines(menu.toPath())) {
+            if (line.isEmpty())
+                continue;
+            StringTokenizer st = new StringTokenizer(line, ",");
+            assertTrue(reader.next());
+            assertEquals(st.nextToken(), reader.getString(0));
+            assertEquals(Double.parseDouble(st.nextToken()), reader.getDouble(1));
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testDecodingDoesNotAllocate() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        byte[][] types = RecordReader.names(PaymentType.values());
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++)
+            text.append(i % 60 + 1).append(",CARD,").append(i % 100).append(".25,").append(1_500_000_000_000L + i).append('\n');
+        byte[] data = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+        long sum = decode(new RecordReader(data, data.length), types);
+        long thread = Thread.currentThread().getId();
+        RecordReader reader = new RecordReader(data, data.length);
+        long before = threads.getThreadAllocatedBytes(thread);
+        sum += decode(reader, types);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(sum != 0);
+        assertTrue(allocated < 1024, "decoding allocated " + allocated + " bytes");
+    }
+
+    private static long decode(RecordReader reader, byte[][] types) throws IOException {
+        long sum = 0;
+        while (reader.next())
+            sum += reader.getInt(0) + reader.getChoice(1, types) + (long) reader.getDouble(2) + reader.getLong(3);
+        return sum;
+    }
+}
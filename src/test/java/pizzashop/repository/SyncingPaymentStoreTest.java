@@ -0,0 +1,163 @@
+package pizzashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncingPaymentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    //remembers how many payments were on disk at the last sync, i.e. what would survive a power cut
+    private static final class CountingJournal extends PaymentJournal {
+        private final AtomicInteger written = new AtomicInteger();
+        private final AtomicInteger durable = new AtomicInteger();
+        private final AtomicInteger syncs = new AtomicInteger();
+
+        private CountingJournal(File file) {
+            super(file);
+        }
+
+        @Override
+        public void appendAll(List<Payment> payments) throws IOException {
+            super.appendAll(payments);
+            written.addAndGet(payments.size());
+        }
+
+        @Override
+        public void sync() throws IOException {
+            int covered = written.get();
+            super.sync();
+            durable.set(covered);
+            syncs.incrementAndGet();
+        }
+    }
+
+    private CountingJournal journal() throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        assertTrue(file.createNewFile());
+        return new CountingJournal(file);
+    }
+
+    private static Payment payment(int i) {
+        return new Payment(i % 8 + 1, PaymentType.CASH, i, i);
+    }
+
+    @Test
+    void testSyncEachWriteMakesEveryAcknowledgedPaymentDurable() throws IOException {
+        CountingJournal journal = journal();
+        try (PaymentRepository repository = new PaymentRepository(new SyncingPaymentStore(journal, Durability.syncEachWrite()))) {
+            for (int i = 1; i <= 20; i++) {
+                repository.add(payment(i));
+                assertEquals(i, journal.durable.get());
+            }
+        }
+    }
+
+    @Test
+    void testSyncEachWriteSyncsEveryGroupCommitBatchBeforeCompletingIt() throws IOException {
+        CountingJournal journal = journal();
+        try (PaymentRepository repository = new PaymentRepository(new SyncingPaymentStore(journal, Durability.syncEachWrite()), 8, 5)) {
+            for (int i = 1; i <= 20; i++) {
+                int acknowledged = i;
+                repository.addAsync(payment(i)).thenRun(() -> assertTrue(journal.durable.get() >= acknowledged)).join();
+            }
+        }
+        assertEquals(journal.written.get(), journal.syncs.get());
+    }
+
+    @Test
+    void testGroupSyncLosesAtMostOneGroup() throws IOException, InterruptedException {
+        CountingJournal journal = journal();
+        try (SyncingPaymentStore store = new SyncingPaymentStore(journal, Durability.groupSync(5, 200))) {
+            for (int i = 1; i <= 12; i++) {
+                store.appendAll(Collections.singletonList(payment(i)));
+                assertTrue(journal.written.get() - journal.durable.get() < 5);
+            }
+            assertTrue(journal.durable.get() >= 10);
+
+            //the timer covers the last two once they are syncMillis old
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (journal.durable.get() < 12 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(12, journal.durable.get());
+        }
+    }
+
+    @Test
+    void testOsBufferedNeverSyncs() throws IOException {
+        CountingJournal journal = journal();
+        try (PaymentRepository repository = new PaymentRepository(new SyncingPaymentStore(journal, Durability.osBuffered()), 4, 1)) {
+            for (int i = 1; i <= 20; i++)
+                repository.add(payment(i));
+        }
+        assertEquals(20, journal.written.get());
+        assertEquals(0, journal.syncs.get());
+    }
+
+    @Test
+    void testSnapshotsSyncTheStoreFirst() throws IOException {
+        CountingJournal journal = journal();
+        File snapshot = tempDir.resolve("payments.snapshot").toFile();
+        try (PaymentRepository repository = new PaymentRepository(new SyncingPaymentStore(journal, Durability.osBuffered()), 10, snapshot, 1_000)) {
+            for (int i = 1; i <= 20; i++)
+                repository.add(payment(i));
+        }
+        assertTrue(snapshot.exists());
+        assertEquals(20, journal.durable.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testFailedSyncIsNeitherRecordedNorAcknowledged(boolean groupCommit) throws IOException {
+        File file = tempDir.resolve("payments.txt").toFile();
+        assertTrue(file.createNewFile());
+        PaymentJournal failing = new PaymentJournal(file) {
+            @Override
+            public void sync() throws IOException {
+                throw new IOException("disk gone");
+            }
+        };
+        SyncingPaymentStore store = new SyncingPaymentStore(failing, Durability.syncEachWrite());
+        try (PaymentRepository repository = groupCommit
+                ? new PaymentRepository(store, 10, tempDir.resolve("payments.snapshot").toFile(), 1, 4, 0)
+                : new PaymentRepository(store)) {
+
+            assertThrows(UncheckedIOException.class, () -> repository.add(payment(1)));
+            CompletionException e = assertThrows(CompletionException.class, () -> repository.addAsync(payment(2)).join());
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+            assertTrue(repository.getAll().isEmpty());
+            assertEquals(0, repository.getTotalAmount(PaymentType.CASH));
+        }
+        assertTrue(new PaymentRepository(new PaymentJournal(file)).getAll().isEmpty());
+    }
+
+    @Test
+    void testParse() {
+        assertEquals(Durability.Mode.SYNC_EACH_WRITE, Durability.parse("sync").getMode());
+        assertEquals(Durability.Mode.OS_BUFFERED, Durability.parse("Buffered").getMode());
+        Durability group = Durability.parse("group:16:250");
+        assertEquals(Durability.Mode.GROUP_SYNC, group.getMode());
+        assertEquals(16, group.getSyncEvery());
+        assertEquals(250, group.getSyncMillis());
+        assertEquals(Durability.DEFAULT_SYNC_EVERY, Durability.parse("group").getSyncEvery());
+        assertThrows(IllegalArgumentException.class, () -> Durability.parse("group:16"));
+        assertThrows(IllegalArgumentException.class, () -> Durability.parse("fast"));
+        assertThrows(IllegalArgumentException.class, () -> Durability.groupSync(0, 10));
+    }
+}
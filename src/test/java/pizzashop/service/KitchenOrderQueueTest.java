@@ -0,0 +1,91 @@
+package pizzashop.service;
+
+import org.junit.jupiter.api.Test;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.OrderLine;
+import pizzashop.model.TicketStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KitchenOrderQueueTest {
+
+    private final KitchenOrderQueue queue = new KitchenOrderQueue(2);
+    private final List<OrderLine> margherita = Collections.singletonList(new OrderLine("Margherita", 2));
+
+    @Test
+    void testSubscriberIsPushedEveryChange() {
+        List<List<KitchenTicket>> seen = new ArrayList<>();
+        queue.subscribe(seen::add);
+
+        KitchenTicket ticket = queue.place(3, margherita);
+        queue.startCooking(ticket.getId());
+        queue.markReady(ticket.getId());
+        queue.markServed(ticket.getId());
+
+        assertEquals(5, seen.size());
+        assertTrue(seen.get(0).isEmpty());
+        assertEquals(TicketStatus.PLACED, seen.get(1).get(0).getStatus());
+        assertEquals(TicketStatus.COOKING, seen.get(2).get(0).getStatus());
+        assertEquals(TicketStatus.READY, seen.get(3).get(0).getStatus());
+        assertTrue(seen.get(4).isEmpty());
+    }
+
+    @Test
+    void testTicketsAreIndexedByStatus() {
+        KitchenTicket first = queue.place(1, margherita);
+        KitchenTicket second = queue.place(12, margherita);
+
+        queue.startCooking(second.getId());
+
+        assertEquals(Collections.singletonList(first), queue.getTickets(TicketStatus.PLACED));
+        assertEquals(12, queue.getTickets(TicketStatus.COOKING).get(0).getTable());
+        assertEquals(TicketStatus.COOKING, queue.getTicket(second.getId()).getStatus());
+        assertTrue(queue.getTicket(second.getId()).getTimestamp(TicketStatus.COOKING) > 0);
+    }
+
+    @Test
+    void testStatusesCanNotBeSkipped() {
+        KitchenTicket ticket = queue.place(1, margherita);
+
+        assertNull(queue.markReady(ticket.getId()));
+        assertNull(queue.markServed(ticket.getId()));
+        assertNull(queue.startCooking(42));
+        assertEquals(TicketStatus.PLACED, queue.getTicket(ticket.getId()).getStatus());
+    }
+
+    @Test
+    void testQueueIsBounded() {
+        assertNotNull(queue.place(1, margherita));
+        assertNotNull(queue.place(2, margherita));
+
+        assertNull(queue.place(3, margherita));
+        assertEquals(2, queue.getTickets().size());
+    }
+
+    @Test
+    void testUnsubscribe() {
+        List<List<KitchenTicket>> seen = new ArrayList<>();
+        Runnable unsubscribe = queue.subscribe(seen::add);
+
+        unsubscribe.run();
+        queue.place(1, margherita);
+
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void testTicketText() {
+        KitchenTicket ticket = queue.place(10, margherita);
+
+        assertEquals("Table10 [2 Margherita]", ticket.toString());
+        assertTrue(queue.startCooking(ticket.getId()).toString().startsWith("TABLE10 [2 MARGHERITA] COOKING STARTED AT: "));
+        KitchenTicket ready = queue.markReady(ticket.getId());
+        assertEquals("TABLE10 [2 MARGHERITA] READY AT: " + KitchenTicket.time(ready.getTimestamp(TicketStatus.READY)), ready.toString());
+        KitchenTicket served = queue.markServed(ticket.getId());
+        assertEquals("TABLE10 [2 MARGHERITA] SERVED AT: " + KitchenTicket.time(served.getTimestamp(TicketStatus.SERVED)), served.toString());
+    }
+}
@@ -0,0 +1,74 @@
+package pizzashop.service;
+
+import org.junit.jupiter.api.Test;
+import pizzashop.metrics.MetricsRegistry;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.OrderLine;
+import pizzashop.model.TicketStatus;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LifecycleStatsTest {
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    //placed at 0, cooking at 1s, ready at 1s + cook, served 2s later
+    private static KitchenTicket served(int table, long cookMillis, OrderLine... lines) {
+        return new KitchenTicket(1, table, Arrays.asList(lines), 0, 0)
+                .advance(TicketStatus.COOKING, 0, ms(1000))
+                .advance(TicketStatus.READY, 0, ms(1000 + cookMillis))
+                .advance(TicketStatus.SERVED, 0, ms(3000 + cookMillis));
+    }
+
+    @Test
+    void testStagesAreMeasuredFromTheTicket() {
+        LifecycleStats stats = new LifecycleStats(new MetricsRegistry());
+        KitchenTicket ticket = served(2, 500, new OrderLine("Margherita", 1));
+
+        stats.record(ticket, ticket.getNanos(TicketStatus.SERVED) + ms(4000));
+
+        assertEquals(ms(1000), stats.get(LifecycleStats.Stage.PLACE_TO_COOK).getMax());
+        assertEquals(ms(500), stats.get(LifecycleStats.Stage.COOK_TO_READY).getMax());
+        assertEquals(ms(2000), stats.get(LifecycleStats.Stage.READY_TO_SERVE).getMax());
+        assertEquals(ms(4000), stats.get(LifecycleStats.Stage.SERVE_TO_PAY).getMax());
+        assertEquals(ms(7500), stats.get(LifecycleStats.Stage.PLACE_TO_PAY).getMax());
+    }
+
+    @Test
+    void testPercentilesPerTableAndItem() {
+        LifecycleStats stats = new LifecycleStats(new MetricsRegistry());
+        for (int cook = 1; cook <= 100; cook++) {
+            KitchenTicket ticket = served(cook % 2 + 1, cook * 10, new OrderLine("Hawaii", 1), new OrderLine("Margherita", 2));
+            stats.record(ticket, ticket.getNanos(TicketStatus.SERVED));
+        }
+        KitchenTicket other = served(3, 5000, new OrderLine("Hawaii", 1));
+        stats.record(other, other.getNanos(TicketStatus.SERVED));
+
+        assertEquals(50, stats.getForTable(1, LifecycleStats.Stage.COOK_TO_READY).getCount());
+        assertEquals(ms(5000), stats.getForTable(3, LifecycleStats.Stage.COOK_TO_READY).getMax());
+        assertNull(stats.getForTable(4, LifecycleStats.Stage.COOK_TO_READY));
+        assertEquals(101, stats.getForItem("Hawaii", LifecycleStats.Stage.COOK_TO_READY).getCount());
+        assertEquals(100, stats.getForItem("Margherita", LifecycleStats.Stage.COOK_TO_READY).getCount());
+        long p95 = stats.getForItem("Margherita", LifecycleStats.Stage.COOK_TO_READY).getPercentile(0.95);
+        assertEquals(ms(950), p95, ms(950) / 16.0);
+
+        StringWriter report = new StringWriter();
+        stats.writeReport(new PrintWriter(report));
+        assertTrue(report.toString().contains("table 3 cook_to_ready count=1 "));
+        assertTrue(report.toString().contains("item Hawaii place_to_pay count=101 "));
+    }
+
+    @Test
+    void testElapsedNeedsBothStatuses() {
+        KitchenTicket placed = new KitchenTicket(1, 1, Arrays.asList(new OrderLine("Hawaii", 1)), 0, 0);
+
+        assertThrows(IllegalStateException.class, () -> placed.getElapsedNanos(TicketStatus.PLACED, TicketStatus.COOKING));
+    }
+}
@@ -0,0 +1,136 @@
+package pizzashop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pizzashop.model.KitchenTicket;
+import pizzashop.model.OrderLine;
+import pizzashop.model.Payment;
+import pizzashop.model.PaymentType;
+import pizzashop.model.TicketStatus;
+import pizzashop.repository.MenuRepository;
+import pizzashop.repository.PaymentRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEngineTest {
+
+    private final String filename = "test_payments.txt";
+    private PaymentRepository paymentRepository;
+    private OrderEngine engine;
+
+    private void refreshInputFile() throws IOException {
+        ClassLoader classLoader = PaymentRepository.class.getClassLoader();
+        File inputFile = new File(classLoader.getResource(filename).getFile());
+
+        if (inputFile.exists() && !inputFile.delete())
+            throw new IOException("File already existed but could not be deleted.");
+
+        if (!inputFile.createNewFile())
+            throw new IOException("New file could not be created.");
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        refreshInputFile();
+        paymentRepository = new PaymentRepository(filename);
+        engine = new OrderEngine(new PizzaService(new MenuRepository(), paymentRepository));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        refreshInputFile();
+    }
+
+    @Test
+    void testFullLifecycle() {
+        engine.openTable(3);
+        engine.addItem(3, 0, 1);
+        engine.addItem(3, 1, 2);
+
+        KitchenTicket placed = engine.placeOrder(3);
+        assertEquals(Arrays.asList(new OrderLine("Hawaii", 1), new OrderLine("Margherita", 2)), placed.getLines());
+        assertNull(engine.serve(3));
+        assertEquals(TicketStatus.COOKING, engine.cook(placed.getId()).getStatus());
+        assertEquals(TicketStatus.READY, engine.ready(placed.getId()).getStatus());
+        assertEquals(TicketStatus.SERVED, engine.serve(3).getStatus());
+        assertNull(engine.getTicket(3));
+
+        Payment payment = engine.pay(3, PaymentType.CARD).join();
+        assertEquals(23.5, payment.getAmount());
+        assertEquals(23.5, engine.getService().getTotalAmount(PaymentType.CARD));
+        assertEquals(1, paymentRepository.getAll().size());
+        assertEquals(0, engine.getOrder(3).getTotalAmount());
+        assertEquals(1, engine.getService().getLifecycleStats().getForTable(3, LifecycleStats.Stage.PLACE_TO_PAY).getCount());
+        assertEquals(1, engine.getService().getLifecycleStats().getForItem("Hawaii", LifecycleStats.Stage.COOK_TO_READY).getCount());
+    }
+
+    @Test
+    void testTablesAreIndependent() {
+        engine.openTable(1);
+        engine.openTable(2);
+
+        engine.setQuantity(1, 2, 4);
+
+        assertEquals(4, engine.getOrder(1).getQuantity(2));
+        assertEquals(0, engine.getOrder(2).getQuantity(2));
+    }
+
+    @Test
+    void testEmptyOrderCanNotBePaid() {
+        engine.openTable(1);
+
+        assertThrows(IllegalArgumentException.class, () -> engine.pay(1, PaymentType.CASH));
+        assertTrue(paymentRepository.getAll().isEmpty());
+    }
+
+    @Test
+    void testTableHasToBeOpen() {
+        assertThrows(IllegalStateException.class, () -> engine.placeOrder(5));
+
+        engine.openTable(5);
+        engine.closeTable(5);
+
+        assertThrows(IllegalStateException.class, () -> engine.getOrder(5));
+    }
+
+    @Test
+    void testTablesBeyondTheDefaultEight() {
+        PizzaService service = new PizzaService(new MenuRepository(), paymentRepository);
+        service.setTableCount(60);
+        OrderEngine large = new OrderEngine(service);
+
+        large.openTable(60);
+        large.addItem(60, 1, 1);
+        assertEquals(60, large.pay(60, PaymentType.CASH).join().getTableNumber());
+        assertThrows(IllegalArgumentException.class, () -> large.openTable(61));
+        assertThrows(IllegalArgumentException.class, () -> engine.openTable(9));
+    }
+
+    @Test
+    void testUnservedTicketsLeaveTheKitchen() {
+        int orders = KitchenOrderQueue.DEFAULT_CAPACITY + 50;
+        for (int i = 0; i < orders; i++) {
+            engine.openTable(1);
+            engine.addItem(1, 0, 1);
+            assertNotNull(engine.placeOrder(1), "refused after " + i + " orders");
+            engine.closeTable(1);
+        }
+
+        engine.openTable(2);
+        engine.addItem(2, 0, 1);
+        for (int i = 0; i < orders; i++)
+            assertNotNull(engine.placeOrder(2), "refused after " + i + " orders");
+        KitchenTicket last = engine.getTicket(2);
+        assertEquals(TicketStatus.COOKING, engine.cook(last.getId()).getStatus());
+        engine.ready(last.getId());
+        engine.pay(2, PaymentType.CASH).join();
+
+        assertTrue(engine.getService().getKitchenQueue().getTickets().isEmpty());
+        assertNull(engine.getTicket(2));
+    }
+}
@@ -10,6 +10,7 @@ import pizzashop.repository.PaymentRepository;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,5 +118,43 @@ class PizzaServiceWBTTest {
         assertEquals(n, value);
     }
 
+    @Test
+    @DisplayName("F02_T07: Running totals match a full scan after random payments.")
+    void runningTotalsMatchFullScan() {
+        //Arrange
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            PaymentType type = random.nextBoolean() ? PaymentType.CASH : PaymentType.CARD;
+            pizzaService.addPayment(random.nextInt(8) + 1, type, 0.01 + random.nextInt(10000) / 100.0);
+        }
+
+        for (PaymentType type : PaymentType.values()) {
+            long scannedCents = 0;
+            for (Payment p : paymentRepository.getAll())
+                if (p.getType() == type)
+                    scannedCents += Math.round(p.getAmount() * 100);
+            double scanned = scannedCents / 100.0;
+
+            //Act
+            double value = pizzaService.getTotalAmount(type);
+
+            //Assert
+            assertEquals(scanned, value);
+            assertEquals(scanned, new PizzaService(new MenuRepository(), new PaymentRepository(filename)).getTotalAmount(type));
+        }
+    }
+
+    @Test
+    @DisplayName("F02_T08: Totals are exact to the cent.")
+    void exactCentTotals() {
+        //Arrange
+        for (int i = 0; i < 10; i++)
+            pizzaService.addPayment(1, PaymentType.CASH, 0.1);
 
-}
\ No newline at end of file
+        //Act
+        double value = pizzaService.getTotalAmount(PaymentType.CASH);
+
+        //Assert
+        assertEquals(1.0, value);
+    }
+}
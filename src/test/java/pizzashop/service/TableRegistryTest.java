@@ -0,0 +1,52 @@
+package pizzashop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableRegistryTest {
+
+    @Test
+    void testStateIsCreatedLazilyOncePerTable() {
+        AtomicInteger created = new AtomicInteger();
+        TableRegistry<StringBuilder> registry = new TableRegistry<>(60, table -> {
+            created.incrementAndGet();
+            return new StringBuilder("Table" + table);
+        });
+
+        assertEquals(0, created.get());
+        assertNull(registry.get(42));
+        StringBuilder first = registry.open(42);
+        assertSame(first, registry.open(42));
+        assertEquals("Table42", first.toString());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void testCloseFreesTheTable() {
+        TableRegistry<String> registry = new TableRegistry<>(60, table -> "Table" + table);
+        registry.open(1);
+        registry.open(60);
+
+        assertEquals(new TreeSet<>(Arrays.asList(1, 60)), registry.getOpenTables());
+        assertEquals("Table60", registry.close(60));
+        assertNull(registry.get(60));
+        assertEquals(new TreeSet<>(Arrays.asList(1)), registry.getOpenTables());
+    }
+
+    @Test
+    void testTableNumbersAreValidatedAgainstTheConfiguredCount() {
+        TableRegistry<String> registry = new TableRegistry<>(60, table -> "Table" + table);
+
+        assertTrue(registry.isValid(1));
+        assertTrue(registry.isValid(60));
+        assertFalse(registry.isValid(0));
+        assertFalse(registry.isValid(61));
+        assertThrows(IllegalArgumentException.class, () -> registry.open(61));
+        assertThrows(IllegalArgumentException.class, () -> new TableRegistry<String>(0, table -> ""));
+    }
+}